@@ -0,0 +1,146 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Pre-baked game assets in one memory-mapped file, built by AssetPackBuilder. Images are stored
+// as raw ARGB ints so loading one is a copy out of the mapping rather than a PNG decode; fonts are
+// stored as their TTF bytes. Nothing is read from an entry until it is asked for.
+// Layout: int magic, int version, int entry count, then per entry: short name length, UTF-8 name,
+// int kind, int width, int height, long data offset, int data length. Image data is 4-byte aligned.
+public class AssetPack {
+    public static final int MAGIC = 0x45445041; // "EDPA"
+    public static final int VERSION = 1;
+    public static final int IMAGE = 1;
+    public static final int FONT = 2;
+
+    private static final int HEADER_BYTES = 12;
+    private static final int ENTRY_BYTES = 24; // after the name
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private String[] names;
+    private int[] kinds;
+    private int[] widths;
+    private int[] heights;
+    private long[] offsets;
+    private int[] lengths;
+
+    private AssetPack(Path file, ByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    // Reads the directory, checking every entry against the file so a truncated or damaged
+    // pack is rejected here instead of failing later when an asset is read
+    private boolean readDirectory() {
+        int capacity = buffer.capacity();
+        int count = buffer.getInt(8);
+        if (count < 0 || count > (capacity - HEADER_BYTES) / (2 + ENTRY_BYTES)) {
+            return false;
+        }
+        names = new String[count];
+        kinds = new int[count];
+        widths = new int[count];
+        heights = new int[count];
+        offsets = new long[count];
+        lengths = new int[count];
+
+        int position = HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            if (capacity - position < 2) return false;
+            int nameLength = buffer.getShort(position);
+            if (nameLength < 0 || capacity - position - 2 < nameLength + ENTRY_BYTES) return false;
+
+            byte[] name = new byte[nameLength];
+            buffer.get(position + 2, name);
+            position += 2 + nameLength;
+
+            names[i] = new String(name, StandardCharsets.UTF_8);
+            kinds[i] = buffer.getInt(position);
+            widths[i] = buffer.getInt(position + 4);
+            heights[i] = buffer.getInt(position + 8);
+            offsets[i] = buffer.getLong(position + 12);
+            lengths[i] = buffer.getInt(position + 20);
+            position += ENTRY_BYTES;
+
+            if (offsets[i] < position || lengths[i] < 0 || offsets[i] + lengths[i] > capacity) return false;
+            if (kinds[i] == IMAGE) {
+                if (widths[i] <= 0 || heights[i] <= 0 || (long) widths[i] * heights[i] * 4 != lengths[i]) return false;
+            } else if (kinds[i] != FONT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Maps the pack, or returns null if there isn't a usable one
+    public static AssetPack open(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+            AssetPack pack = new AssetPack(file, buffer);
+            if (!pack.readDirectory()) {
+                System.out.println("Ignoring damaged asset pack " + file + "; run AssetPackBuilder to rebuild it");
+                return null;
+            }
+            return pack;
+        }
+    }
+
+    private int indexOf(String name, int kind) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name) && kinds[i] == kind) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // True if the pack was built after the given source file last changed
+    public boolean isNewerThan(Path source) throws IOException {
+        return !Files.exists(source)
+                || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(source)) >= 0;
+    }
+
+    // Copies an image's pixels out of the mapping, or returns null if the pack doesn't have it
+    public BufferedImage readImage(String name) {
+        int index = indexOf(name, IMAGE);
+        if (index < 0) return null;
+
+        int width = widths[index];
+        int height = heights[index];
+        IntBuffer pixels = buffer.slice((int) offsets[index], lengths[index]).asIntBuffer();
+
+        // Filled through the raster a row at a time so Java2D can still cache the image on the GPU
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            pixels.get(row);
+            image.getRaster().setDataElements(0, y, width, 1, row);
+        }
+        return image;
+    }
+
+    public byte[] readFont(String name) {
+        int index = indexOf(name, FONT);
+        if (index < 0) return null;
+
+        byte[] data = new byte[lengths[index]];
+        buffer.get((int) offsets[index], data);
+        return data;
+    }
+}
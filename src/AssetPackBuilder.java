@@ -0,0 +1,107 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+// Bakes the game's PNGs and font into the asset pack GameAssets loads at startup.
+// Run again after changing any asset; GameAssets ignores pack entries older than their source.
+// Usage: java AssetPackBuilder [output]
+public class AssetPackBuilder {
+
+    public static void main(String[] args) throws IOException {
+        Path output = args.length > 0 ? Paths.get(args[0]) : GameAssets.PACK_FILE;
+
+        int count = GameAssets.IMAGES.length + 1;
+        String[] names = new String[count];
+        int[] kinds = new int[count];
+        int[] widths = new int[count];
+        int[] heights = new int[count];
+        byte[][] data = new byte[count][];
+
+        for (int i = 0; i < GameAssets.IMAGES.length; i++) {
+            String name = GameAssets.IMAGES[i];
+            Path source = GameAssets.sourceFile(name);
+            BufferedImage image = ImageIO.read(source.toFile());
+            if (image == null) {
+                throw new IOException("Can't decode " + source);
+            }
+            names[i] = name;
+            kinds[i] = AssetPack.IMAGE;
+            widths[i] = image.getWidth();
+            heights[i] = image.getHeight();
+            data[i] = argbPixels(image);
+        }
+
+        int font = count - 1;
+        names[font] = GameAssets.FONT;
+        kinds[font] = AssetPack.FONT;
+        data[font] = Files.readAllBytes(GameAssets.sourceFile(GameAssets.FONT));
+
+        // Directory size first, so data offsets are known before writing it
+        int headerBytes = 12;
+        for (String name : names) {
+            headerBytes += 2 + name.getBytes(StandardCharsets.UTF_8).length + 24;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(AssetPack.MAGIC);
+        out.writeInt(AssetPack.VERSION);
+        out.writeInt(count);
+
+        long offset = align(headerBytes);
+        for (int i = 0; i < count; i++) {
+            byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+            out.writeInt(kinds[i]);
+            out.writeInt(widths[i]);
+            out.writeInt(heights[i]);
+            out.writeLong(offset);
+            out.writeInt(data[i].length);
+            offset = align(offset + data[i].length);
+        }
+
+        for (int i = 0; i < count; i++) {
+            while (out.size() % 4 != 0) {
+                out.writeByte(0);
+            }
+            out.write(data[i]);
+        }
+        out.flush();
+
+        // Written beside the output and renamed over it, so the game never sees a half written pack
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Wrote " + count + " assets (" + out.size() / 1024 + " KB) to " + output);
+    }
+
+    private static long align(long offset) {
+        return (offset + 3) & ~3L;
+    }
+
+    // Non-premultiplied ARGB, one big-endian int per pixel
+    private static byte[] argbPixels(BufferedImage image) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(width * height * 4);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int argb : row) {
+                out.writeInt(argb);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
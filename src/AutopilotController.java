@@ -0,0 +1,61 @@
+import java.util.List;
+
+// Drives with the same throttle/brake/steer inputs a human has. Each tick it rolls the known
+// traffic forward under a handful of held inputs and picks the one that stays clear the longest.
+public class AutopilotController implements CarController {
+    private static final int HORIZON = 40;            // ticks looked ahead
+    private static final double LANE_MARGIN = 0.05;   // extra clearance on top of the collision width
+
+    private static final int[] STEERING = {0, RoadSimulation.INPUT_LEFT, RoadSimulation.INPUT_RIGHT};
+    private static final int[] PEDALS = {RoadSimulation.INPUT_THROTTLE, RoadSimulation.INPUT_BRAKE};
+
+    @Override
+    public int nextInput(RoadSimulation sim) {
+        int bestInput = RoadSimulation.INPUT_THROTTLE;
+        int bestClearTicks = -1;
+        for (int pedal : PEDALS) {
+            for (int steer : STEERING) {
+                int clearTicks = ticksUntilCollision(sim, pedal, steer);
+                // Ties keep the earlier plan: throttle over brake, straight over steering
+                if (clearTicks > bestClearTicks) {
+                    bestClearTicks = clearTicks;
+                    bestInput = pedal | steer;
+                }
+            }
+        }
+        return bestInput;
+    }
+
+    // Holds the input for HORIZON ticks against the current traffic; returns the first tick with a hit
+    private int ticksUntilCollision(RoadSimulation sim, int pedal, int steer) {
+        List<Car> npcCars = sim.getNpcCars();
+        double speed = sim.getSpeed();
+        double x = sim.getPlayerCar().getxCoord();
+        double travelled = 0;
+
+        for (int t = 1; t <= HORIZON; t++) {
+            if (pedal == RoadSimulation.INPUT_THROTTLE) {
+                speed = Math.min(speed + RoadSimulation.SPEED_INCREMENT, sim.getMaxSpeed());
+            } else {
+                speed = Math.max(speed - RoadSimulation.BRAKE_INCREMENT, RoadSimulation.MIN_SPEED);
+            }
+            if (steer == RoadSimulation.INPUT_LEFT) {
+                x = Math.max(x - sim.getCarMoveSpeed(), RoadSimulation.CAR_MIN_X);
+            } else if (steer == RoadSimulation.INPUT_RIGHT) {
+                x = Math.min(x + sim.getCarMoveSpeed(), RoadSimulation.CAR_MAX_X);
+            }
+            travelled += speed;
+
+            double lane = sim.laneOffsetForX(x);
+            for (int i = 0; i < npcCars.size(); i++) {
+                Car npc = npcCars.get(i);
+                double roadPosition = npc.getRoadPosition() - travelled * npc.getSpeed();
+                if (Math.abs(roadPosition) < RoadSimulation.COLLISION_DISTANCE
+                        && Math.abs(npc.getLaneOffset() - lane) < RoadSimulation.COLLISION_LANE_WIDTH + LANE_MARGIN) {
+                    return t;
+                }
+            }
+        }
+        return HORIZON + 1;
+    }
+}
@@ -93,4 +93,8 @@ public class Car {
     public BufferedImage getImage() {
         return image;
     }
+
+    public void setImage(BufferedImage image) {
+        this.image = image;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,5 @@
+// Source of driving input for a player car: the keyboard, the autopilot, ...
+public interface CarController {
+    // Input bits (RoadSimulation.INPUT_*) to drive with for the next tick
+    int nextInput(RoadSimulation sim);
+}
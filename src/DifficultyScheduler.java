@@ -0,0 +1,61 @@
+import java.util.Random;
+
+// Scales traffic with how long the run has lasted and how fast the player is going.
+// At the start of a run it matches the original fixed rules: at most 2 cars, 2% spawn chance.
+public class DifficultyScheduler {
+    public static final int SINGLE = 0;
+    public static final int CONVOY = 1;    // several cars nose to tail in one lane
+    public static final int LANE_WALL = 2; // a row across the road with one gap left open
+
+    private static final double RAMP_SECONDS = 180.0;    // time to reach full intensity at top speed
+    private static final int EXTRA_NPC_CARS = 6;
+    private static final double EXTRA_SPAWN_CHANCE = 6.0;
+    private static final double CONVOY_CHANCE = 0.3;
+    private static final double WALL_CHANCE = 0.25;
+    private static final double WALL_MIN_INTENSITY = 0.3;
+
+    private int baseMaxNpcCars = 2;
+    private int baseSpawnChancePercent = 2;
+    private double intensity = 0;
+
+    public void setBaseMaxNpcCars(int baseMaxNpcCars) {
+        this.baseMaxNpcCars = baseMaxNpcCars;
+    }
+
+    public void setBaseSpawnChancePercent(int baseSpawnChancePercent) {
+        this.baseSpawnChancePercent = baseSpawnChancePercent;
+    }
+
+    // Intensity grows with elapsed time; driving slowly holds it back, driving flat out doesn't
+    public void update(double elapsedSeconds, double speedRatio) {
+        double timeFactor = Math.min(elapsedSeconds / RAMP_SECONDS, 1.0);
+        double speedFactor = 0.5 + 0.5 * Math.min(Math.max(speedRatio, 0), 1.0);
+        intensity = timeFactor * speedFactor;
+    }
+
+    public int getMaxNpcCars() {
+        return baseMaxNpcCars + (int) Math.round(intensity * EXTRA_NPC_CARS);
+    }
+
+    // Spawn chance per tick in percent
+    public double getSpawnChance() {
+        return baseSpawnChancePercent + intensity * EXTRA_SPAWN_CHANCE;
+    }
+
+    public double nextNpcSpeed(Random random) {
+        double min = 0.6 - 0.2 * intensity;
+        double spread = 0.8 + 0.4 * intensity;
+        return min + random.nextDouble() * spread;
+    }
+
+    public int nextPattern(Random random) {
+        double roll = random.nextDouble();
+        if (intensity >= WALL_MIN_INTENSITY && roll < WALL_CHANCE * intensity) {
+            return LANE_WALL;
+        }
+        if (roll < (WALL_CHANCE + CONVOY_CHANCE) * intensity) {
+            return CONVOY;
+        }
+        return SINGLE;
+    }
+}
@@ -0,0 +1,127 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Records gameplay as a numbered JPEG sequence. The game is drawn into one of a small pool of
+// reused offscreen images, which lock-free queues pass to background encoder threads. If every
+// pooled image is still waiting to be encoded the frame is dropped rather than stalling the game.
+public class FrameRecorder {
+    private static final int POOL_SIZE = 8;
+    private static final float JPEG_QUALITY = 0.8f;
+    private static final long IDLE_PARK_NANOS = 2_000_000L;
+
+    public static class Frame {
+        final BufferedImage image;
+        long number;
+
+        Frame(int width, int height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+    }
+
+    private final Path directory;
+    private final int width;
+    private final int height;
+    private final ConcurrentLinkedQueue<Frame> freeFrames = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Frame> pendingFrames = new ConcurrentLinkedQueue<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicInteger runningEncoders = new AtomicInteger();
+    private volatile boolean recording = true;
+    private long nextFrameNumber = 0;
+    private volatile long dropped = 0;
+
+    public FrameRecorder(Path directory, int width, int height) throws IOException {
+        this.directory = directory;
+        this.width = width;
+        this.height = height;
+        Files.createDirectories(directory);
+
+        for (int i = 0; i < POOL_SIZE; i++) {
+            freeFrames.add(new Frame(width, height));
+        }
+
+        // Leave a core for the game itself
+        int encoders = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        runningEncoders.set(encoders);
+        for (int i = 0; i < encoders; i++) {
+            Thread encoder = new Thread(this::encodeFrames, "frame-encoder-" + i);
+            encoder.setDaemon(true);
+            encoder.setPriority(Thread.MIN_PRIORITY);
+            encoder.start();
+        }
+    }
+
+    // Render thread: a pooled frame to draw into, or null if the encoders are behind (frame dropped)
+    public Frame beginFrame() {
+        Frame frame = freeFrames.poll();
+        if (frame == null) {
+            dropped++;
+        }
+        return frame;
+    }
+
+    // Frames can only capture a view of the size the recorder was started with
+    public boolean fits(int width, int height) {
+        return width == this.width && height == this.height;
+    }
+
+    public void submit(Frame frame) {
+        frame.number = nextFrameNumber++;
+        pendingFrames.add(frame);
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    // Encoders finish the frames already queued, then exit
+    public void stop() {
+        recording = false;
+    }
+
+    private void encodeFrames() {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+
+        while (true) {
+            Frame frame = pendingFrames.poll();
+            if (frame == null) {
+                if (!recording) break;
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            Path file = directory.resolve(String.format("frame_%06d.jpg", frame.number));
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(frame.image, null, null), param);
+                written.incrementAndGet();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+            freeFrames.add(frame);
+        }
+        writer.dispose();
+
+        if (runningEncoders.decrementAndGet() == 0) {
+            System.out.println("Recorded " + written.get() + " frames to " + directory
+                    + " (" + dropped + " dropped)");
+        }
+    }
+}
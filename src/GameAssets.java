@@ -0,0 +1,154 @@
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Images and fonts shared by every RoadPanel in the process. Each one is loaded the first time it
+// is asked for, from the pre-baked asset pack when there is an up to date one (see AssetPackBuilder)
+// and from the original PNG or TTF otherwise. Never modified once loaded.
+public final class GameAssets {
+
+    static final Path DIRECTORY = Paths.get("src");
+    static final Path PACK_FILE = DIRECTORY.resolve("assets.pack");
+
+    static final String BACKGROUND1 = "skyline.png";
+    static final String CAR = "car.png";
+    static final String NPC1 = "npc.png";
+    static final String NPC2 = "npc2.png";
+    static final String[] IMAGES = {BACKGROUND1, CAR, NPC1, NPC2};
+    static final String FONT = "pixel-emulator.ttf";
+
+    private static final BufferedImage[] images = new BufferedImage[IMAGES.length];
+    private static final boolean[] imageLoaded = new boolean[IMAGES.length];
+    private static boolean fontLoaded = false;
+    private static Font eightBit;
+    private static Font eightBitLarge;
+    private static Font eightBitSmall;
+
+    private static boolean packOpened = false;
+    private static AssetPack pack;
+
+    private GameAssets() {}
+
+    public static BufferedImage background1() {
+        return image(0);
+    }
+
+    public static BufferedImage car() {
+        return image(1);
+    }
+
+    public static BufferedImage npc1() {
+        return image(2);
+    }
+
+    public static BufferedImage npc2() {
+        return image(3);
+    }
+
+    public static Font eightBit() {
+        loadFonts();
+        return eightBit;
+    }
+
+    public static Font eightBitLarge() {
+        loadFonts();
+        return eightBitLarge;
+    }
+
+    public static Font eightBitSmall() {
+        loadFonts();
+        return eightBitSmall;
+    }
+
+    // Loads what the start screen and the first game need, so startup can do it off the EDT
+    // while Swing initialises. The background is left until a game starts.
+    public static void preload() {
+        loadFonts();
+        car();
+        npc1();
+        npc2();
+    }
+
+    // Finds an asset in the source directory, ignoring case (the backgrounds are saved as .PNG)
+    static Path sourceFile(String name) {
+        Path exact = DIRECTORY.resolve(name);
+        if (Files.exists(exact)) {
+            return exact;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIRECTORY)) {
+            for (Path file : files) {
+                if (file.getFileName().toString().equalsIgnoreCase(name)) {
+                    return file;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        return exact;
+    }
+
+    private static synchronized AssetPack pack() {
+        if (!packOpened) {
+            packOpened = true;
+            try {
+                pack = AssetPack.open(PACK_FILE);
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+        return pack;
+    }
+
+    private static synchronized BufferedImage image(int index) {
+        if (!imageLoaded[index]) {
+            imageLoaded[index] = true;
+            images[index] = loadImage(IMAGES[index]);
+        }
+        return images[index];
+    }
+
+    private static BufferedImage loadImage(String name) {
+        Path source = sourceFile(name);
+        try {
+            AssetPack pack = pack();
+            if (pack != null && pack.isNewerThan(source)) {
+                BufferedImage image = pack.readImage(name);
+                if (image != null) {
+                    return image;
+                }
+            }
+            return ImageIO.read(source.toFile());
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+
+    // The TTF is parsed once; each size is derived from the same base font
+    private static synchronized void loadFonts() {
+        if (fontLoaded) return;
+        fontLoaded = true;
+
+        Path source = sourceFile(FONT);
+        try {
+            AssetPack pack = pack();
+            byte[] packed = pack != null && pack.isNewerThan(source) ? pack.readFont(FONT) : null;
+            Font font = packed != null
+                    ? Font.createFont(Font.TRUETYPE_FONT, new ByteArrayInputStream(packed))
+                    : Font.createFont(Font.TRUETYPE_FONT, source.toFile());
+            GraphicsEnvironment.getLocalGraphicsEnvironment().registerFont(font);
+
+            eightBit = font.deriveFont(24f);
+            eightBitLarge = font.deriveFont(50f);
+            eightBitSmall = font.deriveFont(18f);
+        } catch (IOException | FontFormatException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Per-tick trace of a run (player x, speed, road position) kept in memory-mapped files. A run is
+// recorded into its own scratch file, and each new best run is saved as a new generation
+// (<prefix><n>.dat) rather than over the previous one, which may still be mapped for playback.
+// A mapping is only released when its buffer is collected, so files that are replaced are deleted
+// later, once nothing maps them.
+// Layout: int tick count header, then one 8 byte record per tick.
+public class GhostTrace {
+    private static final int HEADER_BYTES = 4;
+    private static final int RECORD_BYTES = 8;
+    private static final int TICKS_PER_CHUNK = 4096; // ~65 seconds of play per mapped chunk
+
+    private static final double SPEED_SCALE = 1000.0;
+    private static final double POSITION_SCALE = 256.0;
+
+    private final Path file;
+    private final FileChannel channel; // null for a trace opened for playback
+    private MappedByteBuffer chunk;
+    private ByteBuffer records;
+    private int chunkStartTick = 0;
+    private int tickCount = 0;
+
+    private GhostTrace(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    // Starts recording into a new scratch file in directory; records are streamed in one chunk at a time.
+    // Each run gets its own file, since the previous run's mapping may not have been released yet.
+    public static GhostTrace create(Path directory, String prefix) throws IOException {
+        Path file = Files.createTempFile(directory, prefix, ".dat");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        GhostTrace trace = new GhostTrace(file, channel);
+        trace.mapChunk(0);
+        return trace;
+    }
+
+    // Maps the latest best trace in directory for playback, or returns null if there isn't one.
+    public static GhostTrace openBest(Path directory, String prefix) throws IOException {
+        long generation = latestGeneration(directory, prefix);
+        if (generation < 0) {
+            return null;
+        }
+        return open(directory.resolve(prefix + generation + ".dat"));
+    }
+
+    // Maps a finished trace for playback, or returns null if there isn't one.
+    public static GhostTrace open(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < HEADER_BYTES) {
+            return null;
+        }
+        GhostTrace trace = new GhostTrace(file, null);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            trace.records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int recorded = trace.records.getInt(0);
+        trace.tickCount = Math.max(0, Math.min(recorded, (trace.records.capacity() - HEADER_BYTES) / RECORD_BYTES));
+        return trace;
+    }
+
+    private void mapChunk(int startTick) throws IOException {
+        long offset = HEADER_BYTES + (long) startTick * RECORD_BYTES;
+        chunk = channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) TICKS_PER_CHUNK * RECORD_BYTES);
+        chunkStartTick = startTick;
+    }
+
+    public void append(int xCoord, double speed, double position) throws IOException {
+        if (tickCount - chunkStartTick == TICKS_PER_CHUNK) {
+            chunk.force();
+            mapChunk(tickCount);
+        }
+        int index = (tickCount - chunkStartTick) * RECORD_BYTES;
+        chunk.putShort(index, (short) xCoord);
+        chunk.putShort(index + 2, (short) Math.round(speed * SPEED_SCALE));
+        chunk.putInt(index + 4, (int) Math.round(position * POSITION_SCALE));
+        tickCount++;
+    }
+
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    private int recordIndex(int tick) {
+        return HEADER_BYTES + tick * RECORD_BYTES;
+    }
+
+    // Playback accessors, for traces read with open()
+    public int getxCoord(int tick) {
+        return records.getShort(recordIndex(tick));
+    }
+
+    public double getSpeed(int tick) {
+        return records.getShort(recordIndex(tick) + 2) / SPEED_SCALE;
+    }
+
+    public double getPosition(int tick) {
+        return records.getInt(recordIndex(tick) + 4) / POSITION_SCALE;
+    }
+
+    // The scratch file stays padded to a whole chunk; promote() copies only the recorded ticks
+    public void close() throws IOException {
+        if (channel != null) {
+            chunk.force();
+            chunk = null; // unmapped once collected
+            channel.write(ByteBuffer.allocate(HEADER_BYTES).putInt(0, tickCount), 0);
+            channel.force(false);
+            channel.close();
+        }
+        records = null; // unmapped once collected
+    }
+
+    // Saves a closed run trace as the next best generation in directory. The header and recorded
+    // ticks are copied to a temporary file and renamed into place, so a crash never leaves a half
+    // written ghost; earlier generations are left for deleteOldBest().
+    public static void promote(GhostTrace run, Path directory, String prefix) throws IOException {
+        Path best = directory.resolve(prefix + (latestGeneration(directory, prefix) + 1) + ".dat");
+        Path temp = best.resolveSibling(best.getFileName() + ".tmp");
+        long length = HEADER_BYTES + (long) run.tickCount * RECORD_BYTES;
+        try (FileChannel in = FileChannel.open(run.file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            length = Math.min(length, in.size());
+            long copied = 0;
+            while (copied < length) {
+                copied += in.transferTo(copied, length - copied, out);
+            }
+            out.force(false);
+        }
+        Files.move(temp, best, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Deletes scratch files left by earlier runs. On Windows a file whose mapping hasn't been
+    // collected yet can't be deleted; it is skipped and tried again next time.
+    public static void deleteRuns(Path directory, String prefix) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*.dat")) {
+            for (Path file : files) {
+                delete(file);
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    // Deletes every best generation but the latest, skipping any that are still mapped.
+    public static void deleteOldBest(Path directory, String prefix) {
+        long latest = latestGeneration(directory, prefix);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*.dat")) {
+            for (Path file : files) {
+                long generation = generation(file, prefix);
+                if (generation >= 0 && generation < latest) {
+                    delete(file);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // still mapped
+        }
+    }
+
+    // Highest generation number in directory, or -1 if there are none
+    private static long latestGeneration(Path directory, String prefix) {
+        long latest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*.dat")) {
+            for (Path file : files) {
+                latest = Math.max(latest, generation(file, prefix));
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        return latest;
+    }
+
+    // Generation number from a name like <prefix>12.dat, or -1 if it isn't one
+    private static long generation(Path file, String prefix) {
+        String name = file.getFileName().toString();
+        String number = name.substring(prefix.length(), name.length() - ".dat".length());
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+
+// WASD driving. Key events arrive on the EDT; the simulation may read them from another thread.
+public class KeyboardController implements CarController, KeyListener {
+    private volatile boolean wPressed = false;
+    private volatile boolean sPressed = false;
+    private volatile boolean aPressed = false;
+    private volatile boolean dPressed = false;
+
+    @Override
+    public int nextInput(RoadSimulation sim) {
+        int input = 0;
+        if (wPressed) input |= RoadSimulation.INPUT_THROTTLE;
+        if (sPressed) input |= RoadSimulation.INPUT_BRAKE;
+        if (aPressed) input |= RoadSimulation.INPUT_LEFT;
+        if (dPressed) input |= RoadSimulation.INPUT_RIGHT;
+        return input;
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {}
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        int keyCode = e.getKeyCode();
+        if (keyCode == 87) {
+            wPressed = true;
+        } else if (keyCode == 83) {
+            sPressed = true;
+        } else if (keyCode == 65) {
+            aPressed = true;
+        } else if (keyCode == 68) {
+            dPressed = true;
+        }
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        int keyCode = e.getKeyCode();
+        if (keyCode == 87) {
+            wPressed = false;
+        } else if (keyCode == 83) {
+            sPressed = false;
+        } else if (keyCode == 65) {
+            aPressed = false;
+        } else if (keyCode == 68) {
+            dPressed = false;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.locks.LockSupport;
+
+// Hosts several independent game sessions in one JVM, one window per cabinet.
+// Usage: java KioskRunner [sessions]
+public class KioskRunner {
+    public static void main(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        Thread.ofPlatform().name("asset-preload").daemon().start(GameAssets::preload);
+
+        SwingUtilities.invokeLater(() -> {
+            GraphicsDevice[] screens = GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices();
+            for (int i = 0; i < sessions; i++) {
+                RoadPanel panel = new RoadPanel(i);
+                RoadFrame frame = new RoadFrame(panel, "Pseudo 3D Road - Cabinet " + (i + 1), JFrame.DISPOSE_ON_CLOSE);
+
+                // Spread cabinets over the attached screens, cascading when there are more sessions than screens
+                Rectangle bounds = screens[i % screens.length].getDefaultConfiguration().getBounds();
+                int cascade = (i / screens.length) * 40;
+                frame.setLocation(bounds.x + cascade, bounds.y + cascade);
+
+                startSession(panel, frame, i);
+            }
+        });
+    }
+
+    // Each session runs on its own virtual thread: 16 ms simulation ticks while a game is in
+    // progress, parked on the menus until the panel wakes it for the next game
+    private static void startSession(RoadPanel panel, JFrame frame, int sessionId) {
+        Thread.ofVirtual().name("session-" + sessionId).start(() -> {
+            panel.setTickThread(Thread.currentThread());
+            while (frame.isDisplayable()) {
+                if (!panel.isPlaying()) {
+                    LockSupport.park(panel);
+                    continue;
+                }
+                panel.advanceFrame();
+                LockSupport.parkNanos(panel.getFrameInterval() * 1_000_000L);
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+
+// Outgoing packet path with optional simulated latency, jitter and loss, for testing races on loopback.
+// Delayed packets are copied into a fixed pool of direct buffers, so nothing is allocated per packet.
+public class LinkConditioner {
+    private static final int SLOTS = 256;
+
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double lossChance;
+    private final Random random = new Random();
+
+    private final ByteBuffer[] packets = new ByteBuffer[SLOTS];
+    private final SocketAddress[] targets = new SocketAddress[SLOTS];
+    private final long[] dueTimes = new long[SLOTS];
+    private final boolean[] used = new boolean[SLOTS];
+    private int pending = 0;
+
+    public LinkConditioner(int latencyMillis, int jitterMillis, double lossChance) {
+        this.latencyNanos = latencyMillis * 1_000_000L;
+        this.jitterNanos = jitterMillis * 1_000_000L;
+        this.lossChance = lossChance;
+        if (latencyMillis > 0 || jitterMillis > 0) {
+            for (int i = 0; i < SLOTS; i++) {
+                packets[i] = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+            }
+        }
+    }
+
+    public static LinkConditioner direct() {
+        return new LinkConditioner(0, 0, 0);
+    }
+
+    // Sends the remaining bytes of packet, or queues a copy until its simulated arrival time.
+    public void send(DatagramChannel channel, ByteBuffer packet, SocketAddress target) throws IOException {
+        if (lossChance > 0 && random.nextDouble() < lossChance) {
+            return;
+        }
+        if (latencyNanos == 0 && jitterNanos == 0) {
+            channel.send(packet, target);
+            return;
+        }
+
+        for (int i = 0; i < SLOTS; i++) {
+            if (!used[i]) {
+                packets[i].clear();
+                packets[i].put(packet);
+                packets[i].flip();
+                targets[i] = target;
+                dueTimes[i] = System.nanoTime() + latencyNanos + (long) (random.nextDouble() * jitterNanos);
+                used[i] = true;
+                pending++;
+                return;
+            }
+        }
+        // Pool exhausted: treat it as a dropped packet, like a full router queue
+    }
+
+    // Sends every queued packet whose simulated arrival time has passed.
+    public void flush(DatagramChannel channel) throws IOException {
+        if (pending == 0) return;
+
+        long now = System.nanoTime();
+        for (int i = 0; i < SLOTS; i++) {
+            if (used[i] && dueTimes[i] - now <= 0) {
+                channel.send(packets[i], targets[i]);
+                targets[i] = null;
+                used[i] = false;
+                pending--;
+            }
+        }
+    }
+}
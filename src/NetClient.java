@@ -0,0 +1,256 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.Random;
+
+// Client side of a network race. Sends input bits to the host every tick, predicts its own
+// car locally and reconciles against host snapshots, and interpolates the other players.
+public class NetClient {
+    private static final int HISTORY = 32;
+    private static final int INPUT_HISTORY = 64;
+    private static final int INTERPOLATION_TICKS = 6; // remote cars are drawn ~100 ms in the past
+    private static final int JOIN_RETRY_TICKS = 15;
+
+    private final DatagramChannel channel;
+    private final SocketAddress host;
+    private final LinkConditioner link;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+
+    private final RoadSimulation sim;
+    private final BufferedImage npc1img;
+    private final BufferedImage npc2img;
+    private final NetSnapshot[] history = new NetSnapshot[HISTORY];
+    private final int[] inputHistory = new int[INPUT_HISTORY];
+
+    private int roadCenterX = 400;
+    private boolean joining = false;
+    private int joinCooldown = 0;
+    private int playerId = -1;
+    private int inputSeq = -1;
+    private int latestSnapshotTick = -1;
+    private int ticksSinceSnapshot = 0;
+
+    // Other players, interpolated for the current frame
+    private int remoteCount = 0;
+    private final int[] remoteX = new int[NetSnapshot.MAX_PLAYERS];
+    private final double[] remotePosition = new double[NetSnapshot.MAX_PLAYERS];
+
+    public NetClient(SocketAddress host, LinkConditioner link, BufferedImage car,
+                     BufferedImage npc1img, BufferedImage npc2img) throws IOException {
+        this.host = host;
+        this.link = link;
+        this.npc1img = npc1img;
+        this.npc2img = npc2img;
+        sim = new RoadSimulation(car, npc1img, npc2img, new Random());
+
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(host);
+
+        for (int i = 0; i < HISTORY; i++) {
+            history[i] = new NetSnapshot();
+        }
+    }
+
+    public RoadSimulation getSimulation() {
+        return sim;
+    }
+
+    // Asks the host for a fresh run; retried from tick() until the host answers
+    public void join(int roadCenterX) {
+        this.roadCenterX = roadCenterX;
+        joining = true;
+        joinCooldown = 0;
+        playerId = -1;
+        inputSeq = -1;
+        latestSnapshotTick = -1;
+        remoteCount = 0;
+        for (NetSnapshot snap : history) {
+            snap.tick = -1;
+        }
+        sim.setRoadCenterX(roadCenterX);
+        sim.reset();
+        sim.getNpcCars().clear();
+    }
+
+    public void leave() {
+        if (playerId >= 0) {
+            try {
+                sendBuffer.clear();
+                NetProtocol.writeLeave(sendBuffer, playerId);
+                sendBuffer.flip();
+                channel.send(sendBuffer, host);
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+        joining = false;
+        playerId = -1;
+    }
+
+    public void close() throws IOException {
+        leave();
+        channel.close();
+    }
+
+    // Runs one client frame with the given input bits. Returns true if the host reported a new collision.
+    public boolean tick(int inputBits) {
+        int collisionsBefore = sim.getCollisionCount();
+        try {
+            receivePackets();
+
+            if (playerId < 0) {
+                if (joining && joinCooldown-- <= 0) {
+                    sendBuffer.clear();
+                    NetProtocol.writeJoin(sendBuffer, roadCenterX);
+                    sendBuffer.flip();
+                    link.send(channel, sendBuffer, host);
+                    joinCooldown = JOIN_RETRY_TICKS;
+                }
+            } else {
+                inputSeq++;
+                inputHistory[inputSeq % INPUT_HISTORY] = inputBits;
+                sendBuffer.clear();
+                NetProtocol.writeInput(sendBuffer, playerId, inputSeq, latestSnapshotTick, inputHistory);
+                sendBuffer.flip();
+                link.send(channel, sendBuffer, host);
+
+                sim.setInputBits(inputBits);
+                sim.predictTick();
+                ticksSinceSnapshot++;
+                updateRemotePlayers();
+            }
+            link.flush(channel);
+        } catch (PortUnreachableException e) {
+            // Host not up yet; the join is retried
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        return sim.getCollisionCount() > collisionsBefore;
+    }
+
+    private NetSnapshot historyAt(int snapshotTick) {
+        NetSnapshot snap = history[(snapshotTick / NetProtocol.SNAPSHOT_INTERVAL) % HISTORY];
+        return snap.tick == snapshotTick ? snap : null;
+    }
+
+    private void receivePackets() throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            if (channel.read(receiveBuffer) <= 0) return;
+            receiveBuffer.flip();
+
+            if (!receiveBuffer.hasRemaining()) continue;
+
+            // Malformed packets are dropped rather than taking down the game or bot thread
+            try {
+                byte type = receiveBuffer.get(0);
+                if (type == NetProtocol.WELCOME && joining && playerId < 0 && NetProtocol.isValidWelcome(receiveBuffer)) {
+                    playerId = receiveBuffer.get(1);
+                    sim.setMaxSpeed(NetProtocol.readSetting(receiveBuffer.getShort(2)));
+                    sim.setCarMoveSpeed(NetProtocol.readSetting(receiveBuffer.getShort(4)));
+                } else if (type == NetProtocol.SNAPSHOT && playerId >= 0 && NetProtocol.isValidSnapshot(receiveBuffer)) {
+                    receiveSnapshot();
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Dropped bad packet: " + e);
+            }
+        }
+    }
+
+    private void receiveSnapshot() {
+        int snapshotTick = NetProtocol.snapshotTick(receiveBuffer);
+        if (snapshotTick <= latestSnapshotTick) return; // late or duplicate
+
+        NetSnapshot baseline = null;
+        int baselineTick = NetProtocol.snapshotBaselineTick(receiveBuffer);
+        if (baselineTick >= 0) {
+            baseline = historyAt(baselineTick);
+            if (baseline == null) return; // can't decode; the host falls back to a full snapshot
+        }
+
+        NetSnapshot snap = history[(snapshotTick / NetProtocol.SNAPSHOT_INTERVAL) % HISTORY];
+        NetProtocol.readSnapshot(receiveBuffer, snap, baseline);
+        latestSnapshotTick = snapshotTick;
+        ticksSinceSnapshot = 0;
+        if (snap.present[playerId]) {
+            reconcile(snap);
+        }
+    }
+
+    // Takes the host's state for our car and traffic, then replays inputs the host hasn't processed yet
+    private void reconcile(NetSnapshot snap) {
+        int id = playerId;
+        sim.setPlayerState(snap.x[id], NetProtocol.speedOf(snap.speed[id]), NetProtocol.positionOf(snap.position[id]));
+        sim.setCollisionState(snap.collisions[id], (snap.flags[id] & NetProtocol.FLAG_ALIVE) == 0);
+
+        List<Car> npcCars = sim.getNpcCars();
+        while (npcCars.size() > snap.npcCount) {
+            npcCars.remove(npcCars.size() - 1);
+        }
+        while (npcCars.size() < snap.npcCount) {
+            npcCars.add(new Car(npc1img, 0, 0, 0, 0, 0));
+        }
+        for (int i = 0; i < snap.npcCount; i++) {
+            Car npc = npcCars.get(i);
+            NetProtocol.readNpc(snap, i, npc);
+            npc.setImage(snap.npcVariant[i] == 1 ? npc2img : npc1img);
+        }
+
+        int firstUnprocessed = Math.max(snap.ackInputSeq + 1, inputSeq - INPUT_HISTORY + 1);
+        for (int seq = firstUnprocessed; seq <= inputSeq; seq++) {
+            sim.setInputBits(inputHistory[seq % INPUT_HISTORY]);
+            sim.replayTick();
+        }
+    }
+
+    private void updateRemotePlayers() {
+        remoteCount = 0;
+        if (latestSnapshotTick < 0) return;
+
+        // Find the two snapshots around the render time
+        double renderTick = latestSnapshotTick + ticksSinceSnapshot - INTERPOLATION_TICKS;
+        NetSnapshot older = null;
+        NetSnapshot newer = null;
+        for (NetSnapshot snap : history) {
+            if (snap.tick < 0) continue;
+            if (snap.tick <= renderTick && (older == null || snap.tick > older.tick)) {
+                older = snap;
+            }
+            if (snap.tick >= renderTick && (newer == null || snap.tick < newer.tick)) {
+                newer = snap;
+            }
+        }
+        if (older == null) older = newer;
+        if (newer == null) newer = older;
+        if (older == null) return;
+
+        double t = newer.tick == older.tick ? 0 : (renderTick - older.tick) / (newer.tick - older.tick);
+        for (int i = 0; i < NetSnapshot.MAX_PLAYERS; i++) {
+            if (i == playerId || !older.present[i] || !newer.present[i]) continue;
+
+            double olderPosition = NetProtocol.positionOf(older.position[i]);
+            double newerPosition = NetProtocol.positionOf(newer.position[i]);
+            remoteX[remoteCount] = (int) Math.round(older.x[i] + (newer.x[i] - older.x[i]) * t);
+            remotePosition[remoteCount] = olderPosition + (newerPosition - olderPosition) * t;
+            remoteCount++;
+        }
+    }
+
+    public int getRemoteCount() {
+        return remoteCount;
+    }
+
+    public int getRemoteX(int index) {
+        return remoteX[index];
+    }
+
+    public double getRemotePosition(int index) {
+        return remotePosition[index];
+    }
+}
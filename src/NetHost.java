@@ -0,0 +1,301 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+// Authoritative race host. Every player gets their own RoadSimulation, ticked here from the
+// inputs clients send; players receive delta-compressed snapshots of the whole field.
+// Usage: java NetHost [port]
+public class NetHost implements Runnable {
+    private static final long TICK_NANOS = NetProtocol.TICK_MILLIS * 1_000_000L;
+    private static final long TIMEOUT_NANOS = 5_000_000_000L;
+    private static final int HISTORY = 32;
+    private static final int INPUT_HISTORY = 64;
+    private static final int MAX_INPUT_BACKLOG = 8;
+
+    private final DatagramChannel channel;
+    private final LinkConditioner link;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+    private final NetSnapshot[] history = new NetSnapshot[HISTORY];
+    private final Slot[] slots = new Slot[NetSnapshot.MAX_PLAYERS];
+    private volatile boolean running = true;
+    private int tick = 0;
+
+    private double maxSpeed = 1.0;
+    private double carMoveSpeed = 8.0;
+
+    private static class Slot {
+        final RoadSimulation sim;
+        SocketAddress address;
+        long lastHeard;
+
+        final int[] inputs = new int[INPUT_HISTORY];
+        final int[] inputSeqs = new int[INPUT_HISTORY];
+        int lastReceivedSeq;
+        int nextSeq;
+        int processedSeq;
+        int currentInput;
+        int ackedSnapshotTick;
+
+        Slot(RoadSimulation sim) {
+            this.sim = sim;
+        }
+
+        void reset(SocketAddress address, long now) {
+            this.address = address;
+            lastHeard = now;
+            lastReceivedSeq = -1;
+            nextSeq = 0;
+            processedSeq = -1;
+            currentInput = 0;
+            ackedSnapshotTick = -1;
+            for (int i = 0; i < INPUT_HISTORY; i++) {
+                inputSeqs[i] = -1;
+            }
+        }
+    }
+
+    public NetHost(int port, LinkConditioner link) throws IOException {
+        this.link = link;
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress(port));
+
+        for (int i = 0; i < HISTORY; i++) {
+            history[i] = new NetSnapshot();
+        }
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(new RoadSimulation(GameAssets.car(), GameAssets.npc1(), GameAssets.npc2(), new Random()));
+        }
+    }
+
+    public void setMaxSpeed(double maxSpeed) {
+        this.maxSpeed = maxSpeed;
+    }
+
+    public void setCarMoveSpeed(double carMoveSpeed) {
+        this.carMoveSpeed = carMoveSpeed;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime();
+        while (running) {
+            try {
+                receivePackets();
+                step();
+                link.flush(channel);
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+
+            nextTick += TICK_NANOS;
+            long delay = nextTick - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            } else {
+                nextTick = System.nanoTime();
+            }
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private Slot findSlot(SocketAddress address) {
+        for (Slot slot : slots) {
+            if (address.equals(slot.address)) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private void receivePackets() throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress from = channel.receive(receiveBuffer);
+            if (from == null) return;
+            receiveBuffer.flip();
+            if (!receiveBuffer.hasRemaining()) continue;
+
+            // Anything malformed is dropped; one bad datagram must not stop the race for everyone
+            try {
+                byte type = receiveBuffer.get(0);
+                if (type == NetProtocol.JOIN && receiveBuffer.remaining() >= NetProtocol.JOIN_BYTES) {
+                    handleJoin(from, receiveBuffer.getShort(1));
+                } else if (type == NetProtocol.INPUT && NetProtocol.isValidInput(receiveBuffer)) {
+                    handleInput(from);
+                } else if (type == NetProtocol.LEAVE) {
+                    Slot slot = findSlot(from);
+                    if (slot != null) {
+                        slot.address = null;
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Dropped bad packet from " + from + ": " + e);
+            }
+        }
+    }
+
+    // A join from a known address restarts that player's run
+    private void handleJoin(SocketAddress from, int roadCenterX) throws IOException {
+        Slot slot = findSlot(from);
+        if (slot == null) {
+            for (Slot candidate : slots) {
+                if (candidate.address == null) {
+                    slot = candidate;
+                    break;
+                }
+            }
+        }
+        if (slot == null) return; // race is full
+
+        int playerId = indexOf(slot);
+        slot.reset(from, System.nanoTime());
+        slot.sim.setRoadCenterX(roadCenterX);
+        slot.sim.setMaxSpeed(maxSpeed);
+        slot.sim.setCarMoveSpeed(carMoveSpeed);
+        slot.sim.reset();
+
+        sendBuffer.clear();
+        NetProtocol.writeWelcome(sendBuffer, playerId, maxSpeed, carMoveSpeed);
+        sendBuffer.flip();
+        link.send(channel, sendBuffer, from);
+    }
+
+    private void handleInput(SocketAddress from) {
+        Slot slot = findSlot(from);
+        if (slot == null) return;
+
+        receiveBuffer.get(); // type
+        receiveBuffer.get(); // player id, the address is what identifies the sender
+        int seq = receiveBuffer.getInt();
+        int ackSnapshotTick = receiveBuffer.getInt();
+        int count = receiveBuffer.get();
+
+        slot.lastHeard = System.nanoTime();
+        if (ackSnapshotTick > slot.ackedSnapshotTick) {
+            slot.ackedSnapshotTick = ackSnapshotTick;
+        }
+        for (int i = 0; i < count; i++) {
+            int inputSeq = seq - i;
+            int input = receiveBuffer.get();
+            if (inputSeq >= slot.nextSeq) {
+                slot.inputs[inputSeq % INPUT_HISTORY] = input;
+                slot.inputSeqs[inputSeq % INPUT_HISTORY] = inputSeq;
+            }
+        }
+        if (seq > slot.lastReceivedSeq) {
+            slot.lastReceivedSeq = seq;
+        }
+    }
+
+    private int indexOf(Slot slot) {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == slot) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Consumes one input per player per tick; a lost input repeats the previous one
+    private void consumeInput(Slot slot) {
+        if (slot.nextSeq > slot.lastReceivedSeq) return;
+
+        if (slot.lastReceivedSeq - slot.nextSeq > MAX_INPUT_BACKLOG) {
+            slot.nextSeq = slot.lastReceivedSeq - MAX_INPUT_BACKLOG;
+        }
+        int index = slot.nextSeq % INPUT_HISTORY;
+        if (slot.inputSeqs[index] == slot.nextSeq) {
+            slot.currentInput = slot.inputs[index];
+        }
+        slot.processedSeq = slot.nextSeq;
+        slot.nextSeq++;
+    }
+
+    private void step() throws IOException {
+        long now = System.nanoTime();
+        for (Slot slot : slots) {
+            if (slot.address == null) continue;
+
+            if (now - slot.lastHeard > TIMEOUT_NANOS) {
+                slot.address = null;
+                continue;
+            }
+            consumeInput(slot);
+            slot.sim.setInputBits(slot.currentInput);
+            slot.sim.tick();
+        }
+
+        tick++;
+        if (tick % NetProtocol.SNAPSHOT_INTERVAL == 0) {
+            sendSnapshots();
+        }
+    }
+
+    private NetSnapshot historyAt(int snapshotTick) {
+        return history[(snapshotTick / NetProtocol.SNAPSHOT_INTERVAL) % HISTORY];
+    }
+
+    private void sendSnapshots() throws IOException {
+        NetSnapshot snap = historyAt(tick);
+        snap.tick = tick;
+        for (int i = 0; i < slots.length; i++) {
+            RoadSimulation sim = slots[i].sim;
+            snap.present[i] = slots[i].address != null;
+            if (!snap.present[i]) continue;
+
+            snap.x[i] = (short) sim.getPlayerCar().getxCoord();
+            snap.speed[i] = NetProtocol.quantiseSpeed(sim.getSpeed());
+            snap.position[i] = NetProtocol.quantisePosition(sim.getPosition());
+            snap.collisions[i] = (byte) sim.getCollisionCount();
+            snap.flags[i] = (byte) (sim.isGameOver() ? 0 : NetProtocol.FLAG_ALIVE);
+        }
+
+        for (Slot slot : slots) {
+            if (slot.address == null) continue;
+
+            // Delta against the newest snapshot the client has acknowledged, if it is still in history
+            NetSnapshot baseline = null;
+            if (slot.ackedSnapshotTick >= 0
+                    && (tick - slot.ackedSnapshotTick) / NetProtocol.SNAPSHOT_INTERVAL < HISTORY / 2) {
+                NetSnapshot candidate = historyAt(slot.ackedSnapshotTick);
+                if (candidate.tick == slot.ackedSnapshotTick) {
+                    baseline = candidate;
+                }
+            }
+
+            snap.npcCount = 0;
+            for (Car npc : slot.sim.getNpcCars()) {
+                if (snap.npcCount == NetSnapshot.MAX_NPCS) break;
+                boolean secondVariant = GameAssets.npc2() != null && npc.getImage() == GameAssets.npc2();
+                NetProtocol.writeNpc(snap, snap.npcCount++, npc, secondVariant);
+            }
+
+            sendBuffer.clear();
+            NetProtocol.writeSnapshot(sendBuffer, snap, baseline, slot.processedSeq);
+            sendBuffer.flip();
+            link.send(channel, sendBuffer, slot.address);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : NetProtocol.DEFAULT_PORT;
+        NetHost host = new NetHost(port, LinkConditioner.direct());
+        System.out.println("Hosting race on UDP port " + port);
+        host.run();
+    }
+}
@@ -0,0 +1,237 @@
+import java.nio.ByteBuffer;
+
+// Packet layouts for network races. Everything is written into caller-owned buffers.
+//
+// JOIN     type, short roadCenterX
+// WELCOME  type, byte playerId, short maxSpeed*100, short carMoveSpeed*100
+// INPUT    type, byte playerId, int seq, int ackSnapshotTick, byte count, count input bytes (newest first)
+// SNAPSHOT type, int tick, int baselineTick, int ackInputSeq, byte presentMask,
+//          per present player: byte id, byte changedFields, changed fields,
+//          byte npcCount, per npc: short roadPosition, short lane, byte speed, byte variant
+// LEAVE    type, byte playerId
+// Packets come from the network, so receivers check them with the is*/isValid* methods before reading.
+public final class NetProtocol {
+    public static final int DEFAULT_PORT = 40404;
+    public static final int MAX_PACKET = 1200;
+    public static final int TICK_MILLIS = 16;
+    public static final int SNAPSHOT_INTERVAL = 2; // host ticks per snapshot
+    public static final int INPUT_REDUNDANCY = 4;  // inputs repeated per packet to ride out loss
+
+    public static final byte JOIN = 1;
+    public static final byte WELCOME = 2;
+    public static final byte INPUT = 3;
+    public static final byte SNAPSHOT = 4;
+    public static final byte LEAVE = 5;
+
+    // Fixed sizes, including the type byte
+    public static final int JOIN_BYTES = 3;
+    public static final int WELCOME_BYTES = 6;
+    public static final int INPUT_HEADER_BYTES = 11;
+    private static final int SNAPSHOT_HEADER_BYTES = 14;
+    private static final int NPC_BYTES = 6;
+    private static final int MAX_SEQ = 1 << 30; // ~200 days of ticks; keeps sequence arithmetic clear of overflow
+
+    private static final int FIELD_X = 1;
+    private static final int FIELD_SPEED = 2;
+    private static final int FIELD_POSITION = 4;
+    private static final int FIELD_COLLISIONS = 8;
+    private static final int FIELD_FLAGS = 16;
+    private static final int ALL_FIELDS = 31;
+
+    public static final int FLAG_ALIVE = 1;
+
+    private static final double SPEED_SCALE = 1000.0;
+    private static final double POSITION_SCALE = 256.0;
+    private static final double NPC_POSITION_SCALE = 64.0;
+    private static final double LANE_SCALE = 1000.0;
+    private static final double NPC_SPEED_SCALE = 100.0;
+    private static final double SETTING_SCALE = 100.0;
+
+    private NetProtocol() {}
+
+    public static short quantiseSpeed(double speed) {
+        return (short) Math.round(speed * SPEED_SCALE);
+    }
+
+    public static double speedOf(short quantised) {
+        return quantised / SPEED_SCALE;
+    }
+
+    public static int quantisePosition(double position) {
+        return (int) Math.round(position * POSITION_SCALE);
+    }
+
+    public static double positionOf(int quantised) {
+        return quantised / POSITION_SCALE;
+    }
+
+    public static void writeJoin(ByteBuffer out, int roadCenterX) {
+        out.put(JOIN).putShort((short) roadCenterX);
+    }
+
+    public static void writeWelcome(ByteBuffer out, int playerId, double maxSpeed, double carMoveSpeed) {
+        out.put(WELCOME).put((byte) playerId)
+                .putShort((short) Math.round(maxSpeed * SETTING_SCALE))
+                .putShort((short) Math.round(carMoveSpeed * SETTING_SCALE));
+    }
+
+    public static double readSetting(short value) {
+        return value / SETTING_SCALE;
+    }
+
+    public static void writeLeave(ByteBuffer out, int playerId) {
+        out.put(LEAVE).put((byte) playerId);
+    }
+
+    public static void writeInput(ByteBuffer out, int playerId, int seq, int ackSnapshotTick, int[] inputHistory) {
+        int count = Math.min(INPUT_REDUNDANCY, seq + 1);
+        out.put(INPUT).put((byte) playerId).putInt(seq).putInt(ackSnapshotTick).put((byte) count);
+        for (int i = 0; i < count; i++) {
+            out.put((byte) inputHistory[(seq - i) % inputHistory.length]);
+        }
+    }
+
+    // Writes the players as a delta against baseline (null for a full snapshot), followed by the traffic.
+    public static void writeSnapshot(ByteBuffer out, NetSnapshot snap, NetSnapshot baseline, int ackInputSeq) {
+        int presentMask = 0;
+        for (int i = 0; i < NetSnapshot.MAX_PLAYERS; i++) {
+            if (snap.present[i]) {
+                presentMask |= 1 << i;
+            }
+        }
+
+        out.put(SNAPSHOT).putInt(snap.tick).putInt(baseline != null ? baseline.tick : -1).putInt(ackInputSeq);
+        out.put((byte) presentMask);
+
+        for (int i = 0; i < NetSnapshot.MAX_PLAYERS; i++) {
+            if (!snap.present[i]) continue;
+
+            int changed = ALL_FIELDS;
+            if (baseline != null && baseline.present[i]) {
+                changed = 0;
+                if (snap.x[i] != baseline.x[i]) changed |= FIELD_X;
+                if (snap.speed[i] != baseline.speed[i]) changed |= FIELD_SPEED;
+                if (snap.position[i] != baseline.position[i]) changed |= FIELD_POSITION;
+                if (snap.collisions[i] != baseline.collisions[i]) changed |= FIELD_COLLISIONS;
+                if (snap.flags[i] != baseline.flags[i]) changed |= FIELD_FLAGS;
+            }
+
+            out.put((byte) i).put((byte) changed);
+            if ((changed & FIELD_X) != 0) out.putShort(snap.x[i]);
+            if ((changed & FIELD_SPEED) != 0) out.putShort(snap.speed[i]);
+            if ((changed & FIELD_POSITION) != 0) out.putInt(snap.position[i]);
+            if ((changed & FIELD_COLLISIONS) != 0) out.put(snap.collisions[i]);
+            if ((changed & FIELD_FLAGS) != 0) out.put(snap.flags[i]);
+        }
+
+        out.put((byte) snap.npcCount);
+        for (int i = 0; i < snap.npcCount; i++) {
+            out.putShort(snap.npcRoadPosition[i]).putShort(snap.npcLane[i])
+                    .put(snap.npcSpeed[i]).put(snap.npcVariant[i]);
+        }
+    }
+
+    // True if an input packet holds its header, between 0 and INPUT_REDUNDANCY inputs and a usable sequence number
+    public static boolean isValidInput(ByteBuffer in) {
+        int p = in.position();
+        if (in.limit() - p < INPUT_HEADER_BYTES) return false;
+        int seq = in.getInt(p + 2);
+        int count = in.get(p + 10);
+        return seq >= 0 && seq <= MAX_SEQ && count >= 0 && count <= INPUT_REDUNDANCY && count <= seq + 1
+                && in.limit() - p - INPUT_HEADER_BYTES >= count;
+    }
+
+    public static boolean isValidWelcome(ByteBuffer in) {
+        int p = in.position();
+        if (in.limit() - p < WELCOME_BYTES) return false;
+        int playerId = in.get(p + 1);
+        return playerId >= 0 && playerId < NetSnapshot.MAX_PLAYERS;
+    }
+
+    // Walks a snapshot without decoding it, so a bad packet never leaves a half written snapshot behind
+    public static boolean isValidSnapshot(ByteBuffer in) {
+        int p = in.position();
+        int end = in.limit();
+        if (end - p < SNAPSHOT_HEADER_BYTES) return false;
+        if (in.getInt(p + 1) < 0 || in.getInt(p + 5) < -1 || in.getInt(p + 9) < -1) return false;
+
+        int presentMask = in.get(p + 13) & 0xFF;
+        p += SNAPSHOT_HEADER_BYTES;
+        for (int n = Integer.bitCount(presentMask); n > 0; n--) {
+            if (end - p < 2) return false;
+            int id = in.get(p);
+            if (id < 0 || id >= NetSnapshot.MAX_PLAYERS || (presentMask & (1 << id)) == 0) return false;
+            p += 2 + changedFieldBytes(in.get(p + 1));
+        }
+
+        if (end - p < 1) return false;
+        int npcCount = in.get(p);
+        return npcCount >= 0 && npcCount <= NetSnapshot.MAX_NPCS && end - p - 1 >= npcCount * NPC_BYTES;
+    }
+
+    private static int changedFieldBytes(int changed) {
+        int bytes = 0;
+        if ((changed & FIELD_X) != 0) bytes += 2;
+        if ((changed & FIELD_SPEED) != 0) bytes += 2;
+        if ((changed & FIELD_POSITION) != 0) bytes += 4;
+        if ((changed & FIELD_COLLISIONS) != 0) bytes += 1;
+        if ((changed & FIELD_FLAGS) != 0) bytes += 1;
+        return bytes;
+    }
+
+    public static int snapshotTick(ByteBuffer in) {
+        return in.getInt(in.position() + 1);
+    }
+
+    public static int snapshotBaselineTick(ByteBuffer in) {
+        return in.getInt(in.position() + 5);
+    }
+
+    // Decodes a snapshot into out, starting from baseline's players when the packet is a delta.
+    // The packet must have passed isValidSnapshot.
+    public static void readSnapshot(ByteBuffer in, NetSnapshot out, NetSnapshot baseline) {
+        in.get(); // type
+        out.tick = in.getInt();
+        in.getInt(); // baseline tick, already resolved by the caller
+        out.ackInputSeq = in.getInt();
+        int presentMask = in.get() & 0xFF;
+
+        if (baseline != null) {
+            out.copyPlayersFrom(baseline);
+        }
+        for (int i = 0; i < NetSnapshot.MAX_PLAYERS; i++) {
+            out.present[i] = (presentMask & (1 << i)) != 0;
+        }
+
+        for (int n = Integer.bitCount(presentMask); n > 0; n--) {
+            int i = in.get();
+            int changed = in.get();
+            if ((changed & FIELD_X) != 0) out.x[i] = in.getShort();
+            if ((changed & FIELD_SPEED) != 0) out.speed[i] = in.getShort();
+            if ((changed & FIELD_POSITION) != 0) out.position[i] = in.getInt();
+            if ((changed & FIELD_COLLISIONS) != 0) out.collisions[i] = in.get();
+            if ((changed & FIELD_FLAGS) != 0) out.flags[i] = in.get();
+        }
+
+        out.npcCount = Math.min(in.get(), NetSnapshot.MAX_NPCS);
+        for (int i = 0; i < out.npcCount; i++) {
+            out.npcRoadPosition[i] = in.getShort();
+            out.npcLane[i] = in.getShort();
+            out.npcSpeed[i] = in.get();
+            out.npcVariant[i] = in.get();
+        }
+    }
+
+    public static void writeNpc(NetSnapshot snap, int index, Car npc, boolean secondVariant) {
+        snap.npcRoadPosition[index] = (short) Math.round(npc.getRoadPosition() * NPC_POSITION_SCALE);
+        snap.npcLane[index] = (short) Math.round(npc.getLaneOffset() * LANE_SCALE);
+        snap.npcSpeed[index] = (byte) Math.round(npc.getSpeed() * NPC_SPEED_SCALE);
+        snap.npcVariant[index] = (byte) (secondVariant ? 1 : 0);
+    }
+
+    public static void readNpc(NetSnapshot snap, int index, Car npc) {
+        npc.setRoadPosition(snap.npcRoadPosition[index] / NPC_POSITION_SCALE);
+        npc.setLaneOffset(snap.npcLane[index] / LANE_SCALE);
+        npc.setSpeed((snap.npcSpeed[index] & 0xFF) / NPC_SPEED_SCALE);
+    }
+}
@@ -0,0 +1,71 @@
+import javax.swing.*;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.locks.LockSupport;
+
+// Launcher for network races.
+// Usage: java NetRace join <host> [port]
+//        java NetRace loopback [players] [latencyMs] [lossPercent]
+// The loopback mode runs a host, the local player and bot drivers in one process over
+// 127.0.0.1, with the given one-way latency and packet loss applied to every link.
+public class NetRace {
+    private static final long TICK_NANOS = NetProtocol.TICK_MILLIS * 1_000_000L;
+
+    public static void main(String[] args) throws IOException {
+        String mode = args.length > 0 ? args[0] : "loopback";
+
+        if (mode.equals("join")) {
+            String hostName = args.length > 1 ? args[1] : "localhost";
+            int port = args.length > 2 ? Integer.parseInt(args[2]) : NetProtocol.DEFAULT_PORT;
+            startPlayer(new InetSocketAddress(hostName, port), LinkConditioner.direct());
+        } else if (mode.equals("loopback")) {
+            int players = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+            int latency = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+            double loss = args.length > 3 ? Double.parseDouble(args[3]) / 100.0 : 0.02;
+            startLoopback(players, latency, loss);
+        } else {
+            System.out.println("Unknown mode: " + mode);
+        }
+    }
+
+    private static void startLoopback(int players, int latency, double loss) throws IOException {
+        InetSocketAddress hostAddress = new InetSocketAddress("127.0.0.1", NetProtocol.DEFAULT_PORT);
+        NetHost host = new NetHost(NetProtocol.DEFAULT_PORT, new LinkConditioner(latency, latency / 4, loss));
+        Thread.ofPlatform().name("net-host").daemon().start(host);
+
+        for (int i = 1; i < players; i++) {
+            NetClient bot = new NetClient(hostAddress, new LinkConditioner(latency, latency / 4, loss),
+                    GameAssets.car(), GameAssets.npc1(), GameAssets.npc2());
+            startBot(bot, i);
+        }
+        startPlayer(hostAddress, new LinkConditioner(latency, latency / 4, loss));
+    }
+
+    private static void startPlayer(InetSocketAddress hostAddress, LinkConditioner link) throws IOException {
+        NetClient client = new NetClient(hostAddress, link, GameAssets.car(), GameAssets.npc1(), GameAssets.npc2());
+        SwingUtilities.invokeLater(() -> new RoadFrame(new RoadPanel(client), "Pseudo 3D Road - Network Race", JFrame.EXIT_ON_CLOSE));
+    }
+
+    // Autopilot opponent, rejoining after a crash out
+    private static void startBot(NetClient bot, int botId) {
+        Thread.ofVirtual().name("net-bot-" + botId).start(() -> {
+            CarController autopilot = new AutopilotController();
+            bot.join(400);
+            long nextTick = System.nanoTime();
+            while (true) {
+                bot.tick(autopilot.nextInput(bot.getSimulation()));
+                if (bot.getSimulation().isGameOver()) {
+                    bot.join(400);
+                }
+
+                nextTick += TICK_NANOS;
+                long delay = nextTick - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                } else {
+                    nextTick = System.nanoTime();
+                }
+            }
+        });
+    }
+}
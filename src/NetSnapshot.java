@@ -0,0 +1,38 @@
+// Race state at one host tick, quantised exactly as it goes on the wire.
+// Snapshots are preallocated in rings and overwritten in place.
+public class NetSnapshot {
+    public static final int MAX_PLAYERS = 8;
+    public static final int MAX_NPCS = 16;
+
+    int tick = -1;
+    int ackInputSeq = -1;
+
+    final boolean[] present = new boolean[MAX_PLAYERS];
+    final short[] x = new short[MAX_PLAYERS];
+    final short[] speed = new short[MAX_PLAYERS];
+    final int[] position = new int[MAX_PLAYERS];
+    final byte[] collisions = new byte[MAX_PLAYERS];
+    final byte[] flags = new byte[MAX_PLAYERS];
+
+    // Traffic of the player the snapshot is addressed to
+    int npcCount;
+    final short[] npcRoadPosition = new short[MAX_NPCS];
+    final short[] npcLane = new short[MAX_NPCS];
+    final byte[] npcSpeed = new byte[MAX_NPCS];
+    final byte[] npcVariant = new byte[MAX_NPCS];
+
+    void copyPlayersFrom(NetSnapshot other) {
+        System.arraycopy(other.present, 0, present, 0, MAX_PLAYERS);
+        System.arraycopy(other.x, 0, x, 0, MAX_PLAYERS);
+        System.arraycopy(other.speed, 0, speed, 0, MAX_PLAYERS);
+        System.arraycopy(other.position, 0, position, 0, MAX_PLAYERS);
+        System.arraycopy(other.collisions, 0, collisions, 0, MAX_PLAYERS);
+        System.arraycopy(other.flags, 0, flags, 0, MAX_PLAYERS);
+    }
+
+    void clearPlayers() {
+        for (int i = 0; i < MAX_PLAYERS; i++) {
+            present[i] = false;
+        }
+    }
+}
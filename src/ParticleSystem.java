@@ -0,0 +1,169 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Collision sparks, rumble strip dust and weather. Particles are kept as parallel arrays in a
+// fixed-size ring: spawning takes the next slot and overwrites the oldest particle once full.
+// Drawing writes pixels straight into one ARGB raster that is put on screen with a single drawImage.
+public class ParticleSystem {
+    public static final int WEATHER_NONE = 0;
+    public static final int WEATHER_RAIN = 1;
+    public static final int WEATHER_SANDSTORM = 2;
+
+    private static final int CAPACITY = 1 << 16;
+    private static final int CHUNK = 4096;             // particles per parallel update task
+    private static final int PARALLEL_THRESHOLD = 8192; // below this a plain loop is faster
+    private static final float FADE_TICKS = 15f;
+
+    private static final int RAIN_PER_TICK = 400;
+    private static final int SAND_PER_TICK = 300;
+
+    // Structure of arrays: one array per field, indexed by particle slot
+    private final float[] x = new float[CAPACITY];
+    private final float[] y = new float[CAPACITY];
+    private final float[] vx = new float[CAPACITY];
+    private final float[] vy = new float[CAPACITY];
+    private final float[] gravity = new float[CAPACITY];
+    private final float[] life = new float[CAPACITY];
+    private final int[] rgb = new int[CAPACITY];
+    private final byte[] size = new byte[CAPACITY];
+
+    private final Random random = new Random();
+    private int next = 0;
+    private int used = 0; // slots that have held a particle; stays at CAPACITY after the ring wraps
+    private int alive = 0; // particles still alive after the last update, plus any spawned since
+    private int weather = WEATHER_NONE;
+
+    private BufferedImage layer;
+    private int[] pixels;
+
+    public void setWeather(int weather) {
+        this.weather = weather;
+    }
+
+    public int getWeather() {
+        return weather;
+    }
+
+    public void clear() {
+        Arrays.fill(life, 0, used, 0f);
+        used = 0;
+        alive = 0;
+        next = 0;
+    }
+
+    private void spawn(float px, float py, float pvx, float pvy, float pGravity, float pLife, int pRgb, int pSize) {
+        int i = next;
+        x[i] = px;
+        y[i] = py;
+        vx[i] = pvx;
+        vy[i] = pvy;
+        gravity[i] = pGravity;
+        life[i] = pLife;
+        rgb[i] = pRgb;
+        size[i] = (byte) pSize;
+
+        next = (next + 1) & (CAPACITY - 1);
+        if (used < CAPACITY) {
+            used++;
+        }
+        alive++;
+    }
+
+    public void emitSparks(float px, float py, int count) {
+        for (int i = 0; i < count; i++) {
+            double angle = random.nextDouble() * Math.PI * 2;
+            float velocity = 2f + random.nextFloat() * 6f;
+            int color = random.nextBoolean() ? 0xFFD040 : 0xFF8020;
+            spawn(px, py, (float) Math.cos(angle) * velocity, (float) Math.sin(angle) * velocity - 3f,
+                    0.35f, 20 + random.nextInt(20), color, 2);
+        }
+    }
+
+    public void emitDust(float px, float py, int count) {
+        for (int i = 0; i < count; i++) {
+            spawn(px + random.nextFloat() * 10 - 5, py, random.nextFloat() * 2 - 1, -random.nextFloat() * 1.5f,
+                    0.02f, 25 + random.nextInt(20), 0xC8A878, random.nextInt(3) == 0 ? 2 : 1);
+        }
+    }
+
+    private void emitWeather(int width, int height) {
+        if (weather == WEATHER_RAIN) {
+            for (int i = 0; i < RAIN_PER_TICK; i++) {
+                float fall = 10f + random.nextFloat() * 6f;
+                spawn(random.nextFloat() * (width + 100) - 50, -random.nextFloat() * 20, -1.5f, fall,
+                        0f, height / fall + 1, 0xA8C8F0, 1);
+            }
+        } else if (weather == WEATHER_SANDSTORM) {
+            for (int i = 0; i < SAND_PER_TICK; i++) {
+                float drift = 8f + random.nextFloat() * 8f;
+                spawn(-random.nextFloat() * 20, random.nextFloat() * height, drift, random.nextFloat() - 0.4f,
+                        0f, width / drift + 1, random.nextBoolean() ? 0xD2B48C : 0xC09060, random.nextInt(4) == 0 ? 2 : 1);
+            }
+        }
+    }
+
+    // Moves every live particle one tick and adds this tick's weather
+    public void update(int width, int height) {
+        emitWeather(width, height);
+
+        if (alive == 0) return;
+        if (used < PARALLEL_THRESHOLD) {
+            alive = updateRange(0, used);
+        } else {
+            int chunks = (used + CHUNK - 1) / CHUNK;
+            alive = IntStream.range(0, chunks).parallel()
+                    .map(c -> updateRange(c * CHUNK, Math.min((c + 1) * CHUNK, used))).sum();
+        }
+    }
+
+    // Returns how many particles in the range are still alive
+    private int updateRange(int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (life[i] <= 0) continue;
+            vy[i] += gravity[i];
+            x[i] += vx[i];
+            y[i] += vy[i];
+            life[i] -= 1;
+            if (life[i] > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void draw(Graphics2D g2d, int width, int height) {
+        // Nothing alive: skip clearing and compositing the layer entirely
+        if (alive == 0 || width <= 0 || height <= 0) return;
+
+        if (layer == null || layer.getWidth() != width || layer.getHeight() != height) {
+            layer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            pixels = ((DataBufferInt) layer.getRaster().getDataBuffer()).getData();
+        } else {
+            Arrays.fill(pixels, 0);
+        }
+
+        for (int i = 0; i < used; i++) {
+            if (life[i] <= 0) continue;
+            int px = (int) x[i];
+            int py = (int) y[i];
+            int s = size[i];
+            if (px < 0 || py < 0 || px + s > width || py + s > height) continue;
+
+            int alpha = life[i] >= FADE_TICKS ? 255 : (int) (life[i] * 255 / FADE_TICKS);
+            int argb = (alpha << 24) | rgb[i];
+            int row = py * width + px;
+            pixels[row] = argb;
+            if (s == 2) {
+                pixels[row + 1] = argb;
+                pixels[row + width] = argb;
+                pixels[row + width + 1] = argb;
+            }
+        }
+        g2d.drawImage(layer, 0, 0, null);
+    }
+}
@@ -1,20 +1,53 @@
 // RoadFrame.java
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class RoadFrame extends JFrame {
     private RoadPanel roadPanel;
 
     public RoadFrame() {
-        setTitle("Pseudo 3D Road");
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        this(new RoadPanel(), "Pseudo 3D Road", JFrame.EXIT_ON_CLOSE);
+    }
+
+    public RoadFrame(RoadPanel roadPanel, String title, int closeOperation) {
+        setTitle(title);
+        setDefaultCloseOperation(closeOperation);
         setSize(800, 600);
         setLocationRelativeTo(null);
         setResizable(false);
 
-        roadPanel = new RoadPanel();
+        this.roadPanel = roadPanel;
         add(roadPanel);
 
+        // Let the panel slow down or pause rendering while the window is in the background
+        addWindowListener(new WindowAdapter() {
+            public void windowActivated(WindowEvent e) {
+                roadPanel.setWindowState(true, false);
+            }
+
+            public void windowDeactivated(WindowEvent e) {
+                roadPanel.setWindowState(false, (getExtendedState() & ICONIFIED) != 0);
+            }
+
+            public void windowIconified(WindowEvent e) {
+                roadPanel.setWindowState(false, true);
+            }
+
+            public void windowDeiconified(WindowEvent e) {
+                roadPanel.setWindowState(isActive(), false);
+            }
+
+            public void windowClosed(WindowEvent e) {
+                roadPanel.dispose();
+            }
+        });
+
         setVisible(true);
     }
+
+    public RoadPanel getRoadPanel() {
+        return roadPanel;
+    }
 }
\ No newline at end of file
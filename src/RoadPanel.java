@@ -1,4 +1,3 @@
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -6,13 +5,11 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Random;
-import java.awt.FontFormatException;
-import java.awt.GraphicsEnvironment;
+import java.util.concurrent.locks.LockSupport;
 
 public class RoadPanel extends JPanel implements ActionListener, KeyListener {
 
@@ -22,12 +19,15 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
 
     private static final int NUM_SEGMENTS = 25;
     private static final double ROAD_WIDTH = 600;
-    private static final double MIN_CAR_DISTANCE = 3.0;
-    private static final double LANE_WIDTH = 0.6;
+    private static final int MAX_COLLISIONS = RoadSimulation.MAX_COLLISIONS;
 
-    private static final int MAX_COLLISIONS = 10;
-    private static final double COLLISION_DISTANCE = 3;
-    private static final double COLLISION_LANE_WIDTH = 0.4;
+    // Perspective scale at each segment boundary, shared by every panel
+    private static final double[] SEGMENT_SCALE = new double[NUM_SEGMENTS + 1];
+    static {
+        for (int i = 0; i <= NUM_SEGMENTS; i++) {
+            SEGMENT_SCALE[i] = Math.max(1.0 - (double) i / NUM_SEGMENTS * 0.7, 0.01);
+        }
+    }
 
     // Game state constants
     private static final int START_SCREEN = 0;
@@ -35,16 +35,18 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
     private static final int PLAYING = 2;
     private static final int GAME_OVER = 3;
 
-    private int currentState = START_SCREEN;
+    private volatile int currentState = START_SCREEN;
 
     // Game state variables
-    private int collisionCount = 0;
     private int totalScore = 0;
     private long gameStartTime = 0;
     private int finalTime = 0;
     private boolean showCollisionWarning = false;
     private int warningTimer = 0;
-    private List<Car> recentlyCollidedCars = new ArrayList<>();
+
+    // Guards the simulation when it is ticked off the event dispatch thread (kiosk mode)
+    private final Object simLock = new Object();
+    private RoadSimulation sim;
 
     // Settings variables
     private double maxSpeed = 1.0; // Default MAX_SPEED
@@ -66,6 +68,7 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
     private JButton turnSpeedDownButton;
     private JLabel speedLabel;
     private JLabel turnSpeedLabel;
+    private JButton weatherButton;
 
     // Colors for game rendering only
     private final Color GRASS_COLOR = new Color(16, 200, 16);
@@ -76,61 +79,110 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
     private final Color RUMBLE_WHITE = Color.WHITE;
     private final Color RUMBLE_RED = Color.RED;
 
-    private BufferedImage background1;
-    private BufferedImage background2;
+    private BufferedImage background1; // loaded when the first game starts
     private BufferedImage car;
     private BufferedImage npc1img;
     private BufferedImage npc2img;
 
-    private List<Car> npcCars;
-    private Random random;
     private Car playerCar;
 
-    private double position = 0.0;
-    private double speed = 0.3;
-    private static final double MIN_SPEED = 0.05;
-    private static final double SPEED_INCREMENT = 0.003;
-    private static final double BRAKE_INCREMENT = 0.004;
-    private static final double NATURAL_DECELERATION = 0.001;
-
-    private static final double CAR_MIN_X = 150;
-    private static final double CAR_MAX_X = 430;
-
-    private boolean wPressed = false;
-    private boolean sPressed = false;
-    private boolean aPressed = false;
-    private boolean dPressed = false;
+    // Driving input: keyboard by default, P toggles the autopilot during a game
+    private final KeyboardController keyboard = new KeyboardController();
+    private final AutopilotController autopilot = new AutopilotController();
+    private volatile CarController controller = keyboard;
+
+    // Ghost car: best run is replayed while the current run is recorded
+    private static final float GHOST_ALPHA = 0.4f;
+    private static final Path GHOST_DIR = Paths.get(".");
+    private final String ghostBestPrefix;
+    private final String ghostRunPrefix;
+    private GhostTrace ghostTrace;
+    private GhostTrace runTrace;
+
+    // Set for network races; the host then owns the simulation and this panel only predicts
+    private final NetClient netClient;
+
+    // Sparks, rumble strip dust and weather, drawn over the road
+    private static final String[] WEATHER_NAMES = {"OFF", "RAIN", "SANDSTORM"};
+    private static final int DUST_MARGIN = 12;
+    private final ParticleSystem particles = new ParticleSystem();
+
+    // F9 records the game screen to recordings/ while playing
+    private static final Path RECORDINGS_DIR = Paths.get("recordings");
+    private FrameRecorder recorder;
+
+    // Frame pacing: the game always simulates in 16 ms ticks, but only runs while PLAYING and
+    // repaints less often when the window is in the background. Menus repaint on events only.
+    private static final long TICK_NANOS = 16_000_000L;
+    private static final int FRAME_MILLIS = 16;
+    private static final int BACKGROUND_FRAME_MILLIS = 66; // ~15 fps when unfocused
+    private static final int MINIMISED_FRAME_MILLIS = 250; // keep simulating, draw nothing
+    private static final int MAX_CATCH_UP_TICKS = 16;
+    private static final long MAX_FRAME_GAP_NANOS = 1_000_000_000L;
+    private Timer timer;
+    private volatile Thread tickThread;
+    private final boolean throttleWhenUnfocused;
+    private volatile boolean windowActive = true;
+    private volatile boolean windowMinimised = false;
+    private long lastFrameNanos;
+    private long tickDebtNanos;
+    private volatile boolean restartPacing = true; // set when a game starts, so idle time isn't caught up
+
+    // Dynamic resolution: render smaller and scale up when frames run over budget
+    private static final long FRAME_BUDGET_NANOS = 12_000_000L;
+    private static final double MIN_RENDER_SCALE = 0.5;
+    private static final int RESCALE_COOLDOWN_FRAMES = 30;
+    private boolean dynamicResolution = false;
+    private double renderScale = 1.0;
+    private double averageFrameNanos = 0;
+    private int rescaleCooldown = 0;
+    private BufferedImage scaledFrame;
+    private JButton resolutionButton;
+
+    // Telemetry: session, collision, speed and input events go to the shared log
+    private static final int SPEED_SAMPLE_TICKS = 30;
+    private final TelemetryRing telemetry;
+    private int telemetryRun = 0;
+    private int lastInput = -1;
+
+    private Runnable firstFrameListener;
 
     public RoadPanel() {
-        Timer timer = new Timer(16, this);
-        timer.start();
+        this("ghost", 0, null, true);
+    }
 
-        npcCars = new ArrayList<>();
-        random = new Random();
+    // Kiosk session: driven by its session thread through advanceFrame(), with its own ghost files
+    public RoadPanel(int sessionId) {
+        this("ghost-" + sessionId, sessionId, null, false);
+    }
 
-        try {
-            background1 = ImageIO.read(new File("src/skyline.png"));
-            background2 = ImageIO.read(new File("src/desert.png"));
-            car = ImageIO.read(new File("src/car.png"));
-            npc1img = ImageIO.read(new File("src/npc.png"));
-            npc2img = ImageIO.read(new File("src/npc2.png"));
-        } catch (IOException e) {
-            System.out.println(e.getMessage());
-        }
+    public RoadPanel(NetClient netClient) {
+        this("ghost", 0, netClient, true);
+    }
 
-        try{
-            eightBit = Font.createFont(Font.TRUETYPE_FONT,new File("src/pixel-emulator.ttf")).deriveFont(24f);
-            eightBitLarge = Font.createFont(Font.TRUETYPE_FONT,new File("src/pixel-emulator.ttf")).deriveFont(50f);
-            eightBitSmall = Font.createFont(Font.TRUETYPE_FONT,new File("src/pixel-emulator.ttf")).deriveFont(18f);
-            GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-            ge.registerFont(eightBit);
-            ge.registerFont(eightBitLarge);
-            ge.registerFont(eightBitSmall);
-        } catch (IOException | FontFormatException e){
-            e.printStackTrace();
+    private RoadPanel(String ghostName, int cabinet, NetClient netClient, boolean ownTimer) {
+        this.netClient = netClient;
+        this.throttleWhenUnfocused = ownTimer;
+        telemetry = TelemetryLog.shared().openRing(cabinet);
+        if (ownTimer) {
+            timer = new Timer(FRAME_MILLIS, this); // started by updatePacing() when a game starts
         }
-
-        playerCar = new Car(car, 290, 465, 0);
+        ghostBestPrefix = ghostName + "_best-";
+        ghostRunPrefix = ghostName + "_run-";
+
+        car = GameAssets.car();
+        npc1img = GameAssets.npc1();
+        npc2img = GameAssets.npc2();
+        eightBit = GameAssets.eightBit();
+        eightBitLarge = GameAssets.eightBitLarge();
+        eightBitSmall = GameAssets.eightBitSmall();
+
+        if (netClient != null) {
+            sim = netClient.getSimulation();
+        } else {
+            sim = new RoadSimulation(car, npc1img, npc2img, new Random());
+        }
+        playerCar = sim.getPlayerCar();
 
         addKeyListener(this);
         setFocusable(true);
@@ -140,25 +192,11 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
         setupStartScreen();
     }
 
+    // Only the start screen's buttons are built up front; the other screens build theirs on first use
     private void initializeButtons() {
-        // Start screen buttons
         startButton = new JButton("START GAME");
         settingsButton = new JButton("SETTINGS");
 
-        // Settings screen buttons
-        backButton = new JButton("BACK");
-        speedUpButton = new JButton("+");
-        speedDownButton = new JButton("-");
-        turnSpeedUpButton = new JButton("+");
-        turnSpeedDownButton = new JButton("-");
-        speedLabel = new JLabel("Max Speed: " + String.format("%.1f", maxSpeed));
-        turnSpeedLabel = new JLabel("Turn Speed: " + String.format("%.1f", carMoveSpeed));
-
-        // Game over screen buttons
-        restartButton = new JButton("RESTART");
-        mainMenuButton = new JButton("MAIN MENU");
-
-        // Add action listeners
         startButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
                 startNewGame();
@@ -170,20 +208,20 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
                 setupSettingsScreen();
             }
         });
+    }
 
-        backButton.addActionListener(new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                setupStartScreen();
-            }
-        });
-
-        restartButton.addActionListener(new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                startNewGame();
-            }
-        });
+    private void initializeSettingsButtons() {
+        backButton = new JButton("BACK");
+        speedUpButton = new JButton("+");
+        speedDownButton = new JButton("-");
+        turnSpeedUpButton = new JButton("+");
+        turnSpeedDownButton = new JButton("-");
+        speedLabel = new JLabel("Max Speed: " + String.format("%.1f", maxSpeed));
+        turnSpeedLabel = new JLabel("Turn Speed: " + String.format("%.1f", carMoveSpeed));
+        weatherButton = new JButton(weatherText());
+        resolutionButton = new JButton(resolutionText());
 
-        mainMenuButton.addActionListener(new ActionListener() {
+        backButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
                 setupStartScreen();
             }
@@ -216,6 +254,49 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
                 turnSpeedLabel.setText("Turn Speed: " + String.format("%.1f", carMoveSpeed));
             }
         });
+
+        weatherButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                synchronized (simLock) {
+                    particles.setWeather((particles.getWeather() + 1) % WEATHER_NAMES.length);
+                }
+                weatherButton.setText(weatherText());
+            }
+        });
+
+        resolutionButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                synchronized (simLock) {
+                    dynamicResolution = !dynamicResolution;
+                }
+                resolutionButton.setText(resolutionText());
+            }
+        });
+    }
+
+    private void initializeGameOverButtons() {
+        restartButton = new JButton("RESTART");
+        mainMenuButton = new JButton("MAIN MENU");
+
+        restartButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                startNewGame();
+            }
+        });
+
+        mainMenuButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                setupStartScreen();
+            }
+        });
+    }
+
+    private String resolutionText() {
+        return "Auto Resolution: " + (dynamicResolution ? "ON" : "OFF");
+    }
+
+    private String weatherText() {
+        return "Weather: " + WEATHER_NAMES[particles.getWeather()];
     }
 
     private void setupStartScreen() {
@@ -242,11 +323,21 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
         buttonPanel.add(settingsButton, gbc);
 
         // Instructions panel
-        JPanel instructionsPanel = new JPanel(new GridBagLayout());
+        // Plain labels rather than one HTML label: Swing's HTML renderer takes longer to load than the rest of the screen
+        JPanel instructionsPanel = new JPanel();
+        instructionsPanel.setLayout(new BoxLayout(instructionsPanel, BoxLayout.Y_AXIS));
         instructionsPanel.setBackground(Color.WHITE);
-        JLabel instructionsLabel = new JLabel("<html><center>WASD to control your car<br/>Avoid " + MAX_COLLISIONS + " collisions to stay alive!<br/>Reach higher speeds for better scores</center></html>");
-        instructionsLabel.setFont(eightBitSmall);
-        instructionsPanel.add(instructionsLabel);
+        String[] instructions = {
+                "WASD to control your car",
+                "Avoid " + MAX_COLLISIONS + " collisions to stay alive!",
+                "Reach higher speeds for better scores"
+        };
+        for (String line : instructions) {
+            JLabel instructionsLabel = new JLabel(line);
+            instructionsLabel.setFont(eightBitSmall);
+            instructionsLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            instructionsPanel.add(instructionsLabel);
+        }
 
         add(titlePanel, BorderLayout.NORTH);
         add(buttonPanel, BorderLayout.CENTER);
@@ -255,10 +346,14 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
         revalidate();
         repaint();
         requestFocusInWindow();
+        updatePacing();
     }
 
     private void setupSettingsScreen() {
         currentState = SETTINGS_SCREEN;
+        if (backButton == null) {
+            initializeSettingsButtons();
+        }
         removeAll();
         setLayout(new BorderLayout());
 
@@ -294,6 +389,15 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
         turnSpeedRow.add(turnSpeedUpButton);
         settingsPanel.add(turnSpeedRow);
 
+        settingsPanel.add(Box.createVerticalStrut(20));
+
+        // Weather setting row
+        JPanel weatherRow = new JPanel(new FlowLayout());
+        weatherRow.setBackground(Color.WHITE);
+        weatherRow.add(weatherButton);
+        weatherRow.add(resolutionButton);
+        settingsPanel.add(weatherRow);
+
         // Back button panel
         JPanel backPanel = new JPanel();
         backPanel.setBackground(Color.WHITE);
@@ -306,10 +410,17 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
         revalidate();
         repaint();
         requestFocusInWindow();
+        updatePacing();
     }
 
     private void setupGameOverScreen() {
         currentState = GAME_OVER;
+        synchronized (simLock) {
+            logSessionEnd(TelemetryLog.SESSION_END, finalTime);
+        }
+        if (restartButton == null) {
+            initializeGameOverButtons();
+        }
         removeAll();
         setLayout(new BorderLayout());
 
@@ -328,7 +439,7 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
 
         gameOverPanel.add(Box.createVerticalStrut(10));
 
-        JLabel collisionLabel = new JLabel("Collisions: " + collisionCount + "/" + MAX_COLLISIONS);
+        JLabel collisionLabel = new JLabel("Collisions: " + sim.getCollisionCount() + "/" + MAX_COLLISIONS);
         collisionLabel.setFont(eightBit);
         collisionLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
         gameOverPanel.add(collisionLabel);
@@ -352,168 +463,182 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
         revalidate();
         repaint();
         requestFocusInWindow();
+        updatePacing();
     }
     private void startNewGame() {
+        restartPacing = true;
         currentState = PLAYING;
         removeAll(); // Remove UI components for game screen
 
-        collisionCount = 0;
-        showCollisionWarning = false;
-        warningTimer = 0;
-        recentlyCollidedCars.clear();
-        npcCars.clear();
-        position = 0.0;
-        speed = 0.3;
-        playerCar.setxCoord(290);
-        gameStartTime = System.currentTimeMillis();
-        spawnInitialNPCCars();
+        if (background1 == null) {
+            background1 = GameAssets.background1();
+        }
+
+        synchronized (simLock) {
+            showCollisionWarning = false;
+            warningTimer = 0;
+            gameStartTime = System.currentTimeMillis();
+            if (netClient != null) {
+                netClient.join(getWidth() / 2);
+            } else {
+                sim.setMaxSpeed(maxSpeed);
+                sim.setCarMoveSpeed(carMoveSpeed);
+                sim.reset();
+                startGhostRecording();
+            }
+            particles.clear();
+
+            telemetryRun++;
+            lastInput = -1;
+            telemetry.write(telemetryRun, 0, TelemetryLog.SESSION_START, 0, (float) maxSpeed, (float) carMoveSpeed);
+        }
 
         revalidate();
         repaint();
         requestFocusInWindow();
+        updatePacing();
     }
 
-    private void spawnInitialNPCCars() {
-        for (int i = 0; i < 2; i++) {
-            BufferedImage npcImage;
-            if (random.nextBoolean()) {
-                npcImage = npc1img;
-            } else {
-                npcImage = npc2img;
-            }
-
-            double roadPos = 20 + i * 8;
-            double lane = (random.nextDouble() - 0.6) * 1.2;
-            double npcSpeed = 0.7 + random.nextDouble() * 0.3;
-
-            Car npcCar = new Car(npcImage, 0, 0, roadPos, lane, npcSpeed);
-            npcCars.add(npcCar);
+    private void startGhostRecording() {
+        stopGhostRecording(false);
+        try {
+            ghostTrace = GhostTrace.openBest(GHOST_DIR, ghostBestPrefix);
+            runTrace = GhostTrace.create(GHOST_DIR, ghostRunPrefix);
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
         }
     }
 
-    private boolean wouldCollide(double roadPos, double laneOffset) {
-        for (Car existingCar : npcCars) {
-            double roadDistance = Math.abs(existingCar.getRoadPosition() - roadPos);
-            if (roadDistance < MIN_CAR_DISTANCE) {
-                double laneDistance = Math.abs(existingCar.getLaneOffset() - laneOffset);
-                if (laneDistance < LANE_WIDTH) {
-                    return true;
+    // Closes both traces; a finished run that outlasted the ghost becomes the new ghost.
+    private void stopGhostRecording(boolean runFinished) {
+        try {
+            int bestTicks = 0;
+            if (ghostTrace != null) {
+                bestTicks = ghostTrace.getTickCount();
+                ghostTrace.close();
+                ghostTrace = null;
+            }
+            if (runTrace != null) {
+                GhostTrace run = runTrace;
+                runTrace = null;
+                run.close();
+                if (runFinished && run.getTickCount() > bestTicks) {
+                    GhostTrace.promote(run, GHOST_DIR, ghostBestPrefix);
                 }
             }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
         }
-        return false;
+        GhostTrace.deleteRuns(GHOST_DIR, ghostRunPrefix);
+        GhostTrace.deleteOldBest(GHOST_DIR, ghostBestPrefix);
     }
 
-    private boolean findSafeSpawnPosition(double[] outPosition) {
-        int maxAttempts = 10;
-        for (int attempt = 0; attempt < maxAttempts; attempt++) {
-            double roadPos = 25 + random.nextDouble() * 10;
-            double lane = (random.nextDouble() - 0.5) * 1.5;
-
-            if (!wouldCollide(roadPos, lane)) {
-                outPosition[0] = roadPos;
-                outPosition[1] = lane;
-                return true;
+    private void recordGhostTick() {
+        if (runTrace != null) {
+            try {
+                runTrace.append(playerCar.getxCoord(), sim.getSpeed(), sim.getPosition());
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+                runTrace = null;
             }
         }
-        return false;
     }
 
-    private double getPlayerLaneOffset() {
-        int roadCenterX = getWidth() / 2;
-        int roadWidth = (int)(ROAD_WIDTH);
-        return (double)(playerCar.getxCoord() + car.getWidth()/2 - roadCenterX) / (roadWidth * 0.3);
+    // Runs once on the EDT after the panel and its screen have first been painted
+    public void setFirstFrameListener(Runnable firstFrameListener) {
+        this.firstFrameListener = firstFrameListener;
     }
 
-    private void checkPlayerCollisions() {
-        if (currentState != PLAYING) {
-            return;
-        }
-
-        double playerLaneOffset = getPlayerLaneOffset();
-        double playerRoadPosition = 0;
-
-        List<Car> updatedList = new ArrayList<Car>();
-        for (int i = 0; i < recentlyCollidedCars.size(); i++) {
-            Car car = recentlyCollidedCars.get(i);
-            double pos = car.getRoadPosition();
-            if (pos >= -5 && pos <= 5) {
-                updatedList.add(car);
-            }
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (firstFrameListener != null) {
+            Runnable listener = firstFrameListener;
+            firstFrameListener = null;
+            SwingUtilities.invokeLater(listener);
         }
-        recentlyCollidedCars = updatedList;
-
-        boolean collisionHandled = false;
-
-        for (int i = 0; i < npcCars.size(); i++) {
-            Car npc = npcCars.get(i);
-
-            boolean alreadyCollided = false;
-            for (int j = 0; j < recentlyCollidedCars.size(); j++) {
-                if (recentlyCollidedCars.get(j) == npc) {
-                    alreadyCollided = true;
-                }
-            }
-
-            if (!alreadyCollided && !collisionHandled) {
-                double roadDistance = Math.abs(npc.getRoadPosition() - playerRoadPosition);
-                double laneDistance = Math.abs(npc.getLaneOffset() - playerLaneOffset);
+    }
 
-                if (roadDistance < COLLISION_DISTANCE && laneDistance < COLLISION_LANE_WIDTH) {
-                    collisionCount++;
-                    recentlyCollidedCars.add(npc);
-                    showCollisionWarning = true;
-                    warningTimer = 60;
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
 
-                    if (collisionCount >= MAX_COLLISIONS) {
-                        finalTime = (int)((System.currentTimeMillis() - gameStartTime) / 1000);
-                        setupGameOverScreen();
-                    }
-                    collisionHandled = true;
+        if (currentState == PLAYING) {
+            synchronized (simLock) {
+                long start = System.nanoTime();
+                // Size is checked first: a frame taken from the pool must always be submitted
+                FrameRecorder.Frame frame = recorder != null && recorder.fits(getWidth(), getHeight())
+                        ? recorder.beginFrame() : null;
+                if (frame != null) {
+                    // Draw once into the capture buffer and put that on screen
+                    Graphics2D frameGraphics = frame.getImage().createGraphics();
+                    drawGameScreen(frameGraphics);
+                    frameGraphics.dispose();
+                    g.drawImage(frame.getImage(), 0, 0, null);
+                    recorder.submit(frame);
+                } else if (renderScale < 1.0) {
+                    drawScaledGameScreen(g);
+                } else {
+                    drawGameScreen(g);
                 }
+                adjustRenderScale(System.nanoTime() - start);
             }
         }
     }
 
-    private void updateNPCCars() {
-        for (int i = npcCars.size() - 1; i >= 0; i--) {
-            Car npc = npcCars.get(i);
-
-            double currentRoadPos = npc.getRoadPosition();
-            npc.setRoadPosition(currentRoadPos - speed * npc.getSpeed());
-
-            if (npc.getRoadPosition() < -2) {
-                npcCars.remove(i);
-                recentlyCollidedCars.remove(npc);
-            }
+    // Draws the game into a smaller buffer and stretches it over the panel
+    private void drawScaledGameScreen(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        int scaledWidth = Math.max((int) (width * renderScale), 1);
+        int scaledHeight = Math.max((int) (height * renderScale), 1);
+        if (scaledFrame == null || scaledFrame.getWidth() != scaledWidth || scaledFrame.getHeight() != scaledHeight) {
+            scaledFrame = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_RGB);
         }
 
-        if (npcCars.size() < 2 && random.nextInt(100) < 2) {
-            BufferedImage npcImage;
-            if (random.nextBoolean()) {
-                npcImage = npc1img;
-            } else {
-                npcImage = npc2img;
-            }
+        Graphics2D scaledGraphics = scaledFrame.createGraphics();
+        scaledGraphics.scale((double) scaledWidth / width, (double) scaledHeight / height);
+        drawGameScreen(scaledGraphics);
+        scaledGraphics.dispose();
+        g.drawImage(scaledFrame, 0, 0, width, height, null);
+    }
 
-            double[] safePosition = new double[2];
-            if (findSafeSpawnPosition(safePosition)) {
-                double roadPos = safePosition[0];
-                double lane = safePosition[1];
-                double npcSpeed = 0.6 + random.nextDouble() * 0.8;
+    // Steps the render scale down when frames run over budget and back up when there is headroom
+    private void adjustRenderScale(long frameNanos) {
+        if (!dynamicResolution) {
+            renderScale = 1.0;
+            return;
+        }
 
-                Car npcCar = new Car(npcImage, 0, 0, roadPos, lane, npcSpeed);
-                npcCars.add(npcCar);
-            }
+        averageFrameNanos = averageFrameNanos * 0.9 + frameNanos * 0.1;
+        if (rescaleCooldown > 0) {
+            rescaleCooldown--;
+        } else if (averageFrameNanos > FRAME_BUDGET_NANOS && renderScale > MIN_RENDER_SCALE) {
+            renderScale = Math.max(renderScale - 0.1, MIN_RENDER_SCALE);
+            rescaleCooldown = RESCALE_COOLDOWN_FRAMES;
+        } else if (averageFrameNanos < FRAME_BUDGET_NANOS / 2 && renderScale < 1.0) {
+            renderScale = Math.min(renderScale + 0.1, 1.0);
+            rescaleCooldown = RESCALE_COOLDOWN_FRAMES;
         }
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+    private void toggleRecording() {
+        if (recorder != null) {
+            stopRecording();
+            return;
+        }
+        try {
+            Path directory = RECORDINGS_DIR.resolve("run-" + System.currentTimeMillis());
+            recorder = new FrameRecorder(directory, getWidth(), getHeight());
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
 
-        if (currentState == PLAYING) {
-            drawGameScreen(g);
+    private void stopRecording() {
+        if (recorder != null) {
+            recorder.stop();
+            recorder = null;
         }
     }
 
@@ -541,34 +666,39 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
             FontMetrics fm = g2d.getFontMetrics();
             int textWidth = fm.stringWidth(warningText);
             g2d.drawString(warningText, (width - textWidth) / 2, 150);
-            warningTimer--;
-            if (warningTimer <= 0) {
-                showCollisionWarning = false;
-            }
         }
 
         // Show game stats
         g2d.setColor(Color.WHITE);
         g2d.setFont(eightBitSmall);
-        g2d.drawString("Speed: " + String.format("%.2f", speed), 10, 30);
-        g2d.drawString("Collisions: " + collisionCount + "/" + MAX_COLLISIONS, 10, 50);
+        g2d.drawString("Speed: " + String.format("%.2f", sim.getSpeed()), 10, 30);
+        g2d.drawString("Collisions: " + sim.getCollisionCount() + "/" + MAX_COLLISIONS, 10, 50);
         int currentTime = (int)((System.currentTimeMillis() - gameStartTime) / 1000);
         g2d.drawString("Time: " + currentTime + "s", 10, 70);
         g2d.drawString("W: Speed Up, S: Slow Down", 10, 90);
         g2d.drawString("A: Move Left, D: Move Right", 10, 110);
+        if (controller == autopilot) {
+            g2d.drawString("AUTOPILOT (P)", 10, 130);
+        }
+        if (recorder != null) {
+            g2d.setColor(Color.RED);
+            g2d.drawString("REC (F9)  dropped " + recorder.getDropped(), 10, 150);
+            g2d.setColor(Color.WHITE);
+        }
 
         int roadCenterX = width / 2;
         int horizonY = height / 2;
 
         // Draw road segments
+        double position = sim.getPosition();
         for (int i = 0; i < NUM_SEGMENTS - 1; i++) {
             double segmentIndex = i + (position % 3);
 
             double depth1 = (double) i / NUM_SEGMENTS;
-            double scale1 = Math.max(1.0 - depth1 * 0.7, 0.01);
+            double scale1 = SEGMENT_SCALE[i];
 
             double depth2 = (double) (i + 1) / NUM_SEGMENTS;
-            double scale2 = Math.max(1.0 - depth2 * 0.7, 0.01);
+            double scale2 = SEGMENT_SCALE[i + 1];
 
             int y1 = (int) (horizonY + (1 - depth1) * (height - horizonY));
             int y2 = (int) (horizonY + (1 - depth2) * (height - horizonY));
@@ -602,13 +732,16 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
         }
 
         drawNPCCars(g2d, width, height, roadCenterX, horizonY);
+        drawGhostCar(g2d, roadCenterX, horizonY);
+        drawRemoteCars(g2d, roadCenterX, horizonY);
         if (car != null) {
             g2d.drawImage(car, playerCar.getxCoord(), playerCar.getyCoord(), null);
         }
+        particles.draw(g2d, width, height);
     }
 
     private void drawNPCCars(Graphics2D g2d, int width, int height, int roadCenterX, int horizonY) {
-        for (Car npc : npcCars) {
+        for (Car npc : sim.getNpcCars()) {
             double depth = npc.getRoadPosition() / NUM_SEGMENTS;
 
             if (depth < 0 || depth > 1) continue;
@@ -634,6 +767,42 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
         }
     }
 
+    private void drawGhostCar(Graphics2D g2d, int roadCenterX, int horizonY) {
+        int tick = sim.getTick();
+        if (ghostTrace == null || tick >= ghostTrace.getTickCount()) {
+            return;
+        }
+        drawTranslucentCar(g2d, roadCenterX, horizonY, ghostTrace.getPosition(tick), ghostTrace.getxCoord(tick));
+    }
+
+    private void drawRemoteCars(Graphics2D g2d, int roadCenterX, int horizonY) {
+        if (netClient == null) return;
+
+        for (int i = 0; i < netClient.getRemoteCount(); i++) {
+            drawTranslucentCar(g2d, roadCenterX, horizonY, netClient.getRemotePosition(i), netClient.getRemoteX(i));
+        }
+    }
+
+    // Draws a player-sprite car at another road position and screen x (ghost or remote player)
+    private void drawTranslucentCar(Graphics2D g2d, int roadCenterX, int horizonY, double carPosition, int xCoord) {
+        if (car == null) return;
+
+        // Distance ahead of the player, projected the same way as NPC cars
+        double depth = (carPosition - sim.getPosition()) / NUM_SEGMENTS;
+        if (depth < 0 || depth > 1) return;
+
+        double scale = Math.max(1.0 - depth * 0.7, 0.01);
+        int carWidth = (int) (car.getWidth() * scale);
+        int carHeight = (int) (car.getHeight() * scale);
+        int carX = (int) (roadCenterX + (xCoord + car.getWidth() / 2 - roadCenterX) * scale) - carWidth / 2;
+        int y = (int) (horizonY + (1 - depth) * (playerCar.getyCoord() + car.getHeight() - horizonY)) - carHeight;
+
+        Composite oldComposite = g2d.getComposite();
+        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, GHOST_ALPHA));
+        g2d.drawImage(car, carX, y, carWidth, carHeight, null);
+        g2d.setComposite(oldComposite);
+    }
+
     private void drawTrapezoid(Graphics2D g2d, Color color, int x1, int y1, int width1, int x2, int y2, int width2) {
         g2d.setColor(color);
         int[] xPoints = {x1, x1 + width1, x2 + width2, x2};
@@ -641,37 +810,186 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
         g2d.fillPolygon(xPoints, yPoints, 4);
     }
 
-    private void updatePosition() {
+    // Starts or stops ticking for the current screen and window state
+    private void updatePacing() {
+        if (timer != null) {
+            if (currentState != PLAYING) {
+                timer.stop();
+            } else {
+                timer.setDelay(getFrameInterval());
+                if (!timer.isRunning()) {
+                    timer.start();
+                }
+            }
+        }
+        Thread thread = tickThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    // Milliseconds until the next frame is due
+    public int getFrameInterval() {
+        if (windowMinimised) {
+            return MINIMISED_FRAME_MILLIS;
+        }
+        if (!windowActive && throttleWhenUnfocused) {
+            return BACKGROUND_FRAME_MILLIS;
+        }
+        return FRAME_MILLIS;
+    }
+
+    public void setWindowState(boolean active, boolean minimised) {
+        windowActive = active;
+        windowMinimised = minimised;
+        updatePacing();
+    }
+
+    public boolean isPlaying() {
+        return currentState == PLAYING;
+    }
+
+    // Releases what a closed window would otherwise leak: the ghost scratch trace, the recorder's
+    // encoder threads and this panel's telemetry ring. Also wakes a kiosk session thread so it can exit.
+    public void dispose() {
+        synchronized (simLock) {
+            if (currentState == PLAYING && !sim.isGameOver()) {
+                logSessionEnd(TelemetryLog.SESSION_QUIT, (int) ((System.currentTimeMillis() - gameStartTime) / 1000));
+            }
+            currentState = START_SCREEN;
+            stopGhostRecording(false);
+            stopRecording();
+            if (netClient != null) {
+                netClient.leave();
+            }
+        }
+        TelemetryLog.shared().closeRing(telemetry);
+        updatePacing();
+    }
+
+    // Kiosk session thread; unparked whenever the pacing changes
+    public void setTickThread(Thread tickThread) {
+        this.tickThread = tickThread;
+    }
+
+    // Runs every 16 ms tick that has come due since the last frame, then repaints once
+    public void advanceFrame() {
         if (currentState != PLAYING) return;
 
-        // Speed logic using the configurable maxSpeed
-        if (wPressed && sPressed) {
-            speed = Math.max(speed - NATURAL_DECELERATION, MIN_SPEED);
-        } else if (wPressed) {
-            speed = Math.min(speed + SPEED_INCREMENT, maxSpeed);
-        } else if (sPressed) {
-            speed = Math.max(speed - BRAKE_INCREMENT, MIN_SPEED);
-        } else {
-            speed = Math.max(speed - NATURAL_DECELERATION, MIN_SPEED);
+        long now = System.nanoTime();
+        if (restartPacing || now - lastFrameNanos > MAX_FRAME_GAP_NANOS) {
+            // First frame of a game, or ticking was stopped: start from a single tick
+            restartPacing = false;
+            lastFrameNanos = now - TICK_NANOS;
+            tickDebtNanos = 0;
         }
+        tickDebtNanos += now - lastFrameNanos;
+        lastFrameNanos = now;
 
-        // Horizontal movement using configurable carMoveSpeed
-        int currentX = playerCar.getxCoord();
-        if (aPressed && !dPressed) {
-            playerCar.setxCoord((int) Math.max(currentX - carMoveSpeed, CAR_MIN_X));
-        } else if (dPressed && !aPressed) {
-            playerCar.setxCoord((int) Math.min(currentX + carMoveSpeed, CAR_MAX_X));
+        int dueTicks = (int) Math.min(tickDebtNanos / TICK_NANOS, MAX_CATCH_UP_TICKS);
+        tickDebtNanos = dueTicks == MAX_CATCH_UP_TICKS ? 0 : tickDebtNanos - dueTicks * TICK_NANOS;
+        for (int i = 0; i < dueTicks; i++) {
+            tick();
+        }
+        if (!windowMinimised) {
+            repaint();
         }
+    }
 
-        updateNPCCars();
-        checkPlayerCollisions();
-        position += speed;
-        repaint();
+    // Advances the game by one tick. Called on the EDT from the Swing timer, or from a
+    // kiosk session thread; Swing screen changes are always handed back to the EDT.
+    private void tick() {
+        if (currentState != PLAYING) return;
+
+        boolean gameEnded = false;
+        synchronized (simLock) {
+            if (sim.isGameOver()) return;
+
+            boolean collided;
+            int input = controller.nextInput(sim);
+            if (netClient != null) {
+                collided = netClient.tick(input);
+            } else {
+                sim.setRoadCenterX(getWidth() / 2);
+                sim.setInputBits(input);
+                collided = sim.tick();
+            }
+            // The warning counts down in ticks so it lasts the same time whatever the frame rate
+            if (collided) {
+                showCollisionWarning = true;
+                warningTimer = 60;
+            } else if (warningTimer > 0) {
+                warningTimer--;
+                if (warningTimer <= 0) {
+                    showCollisionWarning = false;
+                }
+            }
+            logTickEvents(input, collided);
+            recordGhostTick();
+            updateParticles(collided);
+
+            if (sim.isGameOver()) {
+                finalTime = (int)((System.currentTimeMillis() - gameStartTime) / 1000);
+                stopGhostRecording(true);
+                stopRecording();
+                gameEnded = true;
+            }
+        }
+
+        if (gameEnded) {
+            SwingUtilities.invokeLater(this::setupGameOverScreen);
+        }
+    }
+
+    // Called under simLock, so this panel's ring only ever has one writer at a time
+    private void logTickEvents(int input, boolean collided) {
+        int simTick = sim.getTick();
+        if (input != lastInput) {
+            telemetry.write(telemetryRun, simTick, TelemetryLog.INPUT, input, 0f, 0f);
+            lastInput = input;
+        }
+        if (collided) {
+            // Network clients only hear about collisions from the host, not which car it was
+            Car npc = sim.getLastCollisionCar();
+            float npcSpeed = npc != null ? (float) npc.getSpeed() : Float.NaN;
+            float npcLane = npc != null ? (float) npc.getLaneOffset() : Float.NaN;
+            telemetry.write(telemetryRun, simTick, TelemetryLog.COLLISION, sim.getCollisionCount(), npcSpeed, npcLane);
+        }
+        if (simTick % SPEED_SAMPLE_TICKS == 0) {
+            telemetry.write(telemetryRun, simTick, TelemetryLog.SPEED, sim.getNpcCars().size(),
+                    (float) sim.getSpeed(), (float) sim.getPlayerLaneOffset());
+        }
+    }
+
+    private void logSessionEnd(int type, int survivalSeconds) {
+        telemetry.write(telemetryRun, sim.getTick(), type, sim.getCollisionCount(),
+                survivalSeconds, (float) sim.getPosition());
+    }
+
+    private void updateParticles(boolean collided) {
+        int carX = playerCar.getxCoord();
+        int carY = playerCar.getyCoord();
+        int carWidth = car != null ? car.getWidth() : 0;
+        int carHeight = car != null ? car.getHeight() : 0;
+
+        if (collided) {
+            particles.emitSparks(carX + carWidth / 2f, carY + carHeight / 3f, 150);
+        }
+
+        // Kick up dust from the rumble strips when riding the edge of the road
+        int dust = (int) (sim.getSpeed() * 6);
+        if (carX <= RoadSimulation.CAR_MIN_X + DUST_MARGIN) {
+            particles.emitDust(carX, carY + carHeight, dust);
+        } else if (carX >= RoadSimulation.CAR_MAX_X - DUST_MARGIN) {
+            particles.emitDust(carX + carWidth, carY + carHeight, dust);
+        }
+
+        particles.update(getWidth(), getHeight());
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
-        updatePosition();
+        advanceFrame();
     }
 
     @Override
@@ -683,20 +1001,30 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
 
         // Handle game controls only during gameplay
         if (currentState == PLAYING) {
-            if (keyCode == 87) {
-                wPressed = true;
-            } else if (keyCode == 83) {
-                sPressed = true;
-            } else if (keyCode == 65) {
-                aPressed = true;
-            } else if (keyCode == 68) {
-                dPressed = true;
+            keyboard.keyPressed(e);
+
+            if (keyCode == 80) { // P toggles the autopilot
+                controller = controller == autopilot ? keyboard : autopilot;
+            } else if (keyCode == 120) { // F9 toggles recording
+                synchronized (simLock) {
+                    toggleRecording();
+                }
             }
         }
 
 // Handle menu navigation
         if (keyCode == 27) { // ESCAPE
             if (currentState == PLAYING) {
+                synchronized (simLock) {
+                    if (!sim.isGameOver()) {
+                        logSessionEnd(TelemetryLog.SESSION_QUIT, (int) ((System.currentTimeMillis() - gameStartTime) / 1000));
+                    }
+                    stopGhostRecording(false);
+                    stopRecording();
+                    if (netClient != null) {
+                        netClient.leave();
+                    }
+                }
                 setupStartScreen();
             } else if (currentState == SETTINGS_SCREEN) {
                 setupStartScreen();
@@ -717,15 +1045,6 @@ public class RoadPanel extends JPanel implements ActionListener, KeyListener {
 
     @Override
     public void keyReleased(KeyEvent e) {
-        int keyCode = e.getKeyCode();
-        if (keyCode == 87) {
-            wPressed = false;
-        } else if (keyCode == 83) {
-            sPressed = false;
-        } else if (keyCode == 65) {
-            aPressed = false;
-        } else if (keyCode == 68) {
-            dPressed = false;
-        }
+        keyboard.keyReleased(e);
     }
 }
\ No newline at end of file
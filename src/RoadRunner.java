@@ -1,9 +1,28 @@
+import java.time.Duration;
+import java.time.Instant;
+
 public class RoadRunner {
     public static void main(String[] args) {
+        long mainStart = System.nanoTime();
+        Thread.ofPlatform().name("asset-preload").daemon().start(GameAssets::preload);
+
         javax.swing.SwingUtilities.invokeLater(() -> {
-            new RoadFrame();
+            RoadFrame frame = new RoadFrame();
 
-            new MusicPlayerGUI("src/Instrumental.wav");
+            // The music window waits until the game is on screen so it doesn't hold up the first frame
+            frame.getRoadPanel().setFirstFrameListener(() -> {
+                reportFirstFrame(mainStart);
+                new MusicPlayerGUI("src/Instrumental.wav");
+            });
         });
     }
-}
\ No newline at end of file
+
+    // Time to first frame, from process launch (including JVM startup) and from entering main
+    private static void reportFirstFrame(long mainStart) {
+        long sinceMain = (System.nanoTime() - mainStart) / 1_000_000;
+        String sinceLaunch = ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis() + " ms after launch, ")
+                .orElse("");
+        System.out.println("First frame " + sinceLaunch + sinceMain + " ms after main");
+    }
+}
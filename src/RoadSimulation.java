@@ -0,0 +1,497 @@
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Game rules for a single run, independent of Swing so it can be ticked from any thread.
+public class RoadSimulation {
+
+    private static final double ROAD_WIDTH = 600;
+    private static final double MIN_CAR_DISTANCE = 3.0;
+    private static final double LANE_WIDTH = 0.6;
+
+    public static final int MAX_COLLISIONS = 10;
+    public static final double COLLISION_DISTANCE = 3;
+    public static final double COLLISION_LANE_WIDTH = 0.4;
+
+    public static final double MIN_SPEED = 0.05;
+    public static final double SPEED_INCREMENT = 0.003;
+    public static final double BRAKE_INCREMENT = 0.004;
+    private static final double NATURAL_DECELERATION = 0.001;
+
+    public static final double CAR_MIN_X = 150;
+    public static final double CAR_MAX_X = 430;
+    public static final int PLAYER_START_X = 290;
+    public static final int PLAYER_Y = 465;
+    public static final double SECONDS_PER_TICK = 0.016;
+
+    // Spawn placement
+    private static final double SPAWN_MIN_LANE = -0.75;
+    private static final double SPAWN_MAX_LANE = 0.75;
+    private static final double CONVOY_SPACING = MIN_CAR_DISTANCE + 0.5;
+    private static final int CONVOY_LENGTH = 3;
+    private static final double WALL_GAP_HALF_WIDTH = 0.55; // collision width plus some room to aim
+    private static final double WALL_VISIBLE_DISTANCE = 22; // road distance at which a wall comes on screen
+    private static final int WALL_REACTION_TICKS = 15;      // ~0.25 s to see the wall before steering
+
+    // Input bits, as sent over the network
+    public static final int INPUT_THROTTLE = 1;
+    public static final int INPUT_BRAKE = 2;
+    public static final int INPUT_LEFT = 4;
+    public static final int INPUT_RIGHT = 8;
+
+    private final List<Car> npcCars = new ArrayList<>();
+    private List<Car> recentlyCollidedCars = new ArrayList<>();
+    private final Random random;
+    private final BufferedImage npc1img;
+    private final BufferedImage npc2img;
+    private final Car playerCar;
+    private final int playerWidth;
+    private int roadCenterX = 400;
+
+    private double position = 0.0;
+    private double speed = 0.3;
+    private double maxSpeed = 1.0;
+    private double carMoveSpeed = 8.0;
+    private int maxCollisions = MAX_COLLISIONS;
+    private final DifficultyScheduler difficulty = new DifficultyScheduler();
+    private int collisionCount = 0;
+    private Car lastCollisionCar;
+    private boolean gameOver = false;
+    private int tick = 0;
+
+    private boolean wPressed = false;
+    private boolean sPressed = false;
+    private boolean aPressed = false;
+    private boolean dPressed = false;
+
+    // Scratch space for the free lane search, grown if the road ever holds more cars
+    private double[] blockedStart = new double[8];
+    private double[] blockedEnd = new double[8];
+    private double[] freeStart = new double[9];
+    private double[] freeEnd = new double[9];
+
+    public RoadSimulation(BufferedImage car, BufferedImage npc1img, BufferedImage npc2img, Random random) {
+        this.npc1img = npc1img;
+        this.npc2img = npc2img;
+        this.random = random;
+        this.playerCar = new Car(car, PLAYER_START_X, PLAYER_Y, 0);
+        this.playerWidth = car != null ? car.getWidth() : 0;
+    }
+
+    public void reset() {
+        collisionCount = 0;
+        lastCollisionCar = null;
+        gameOver = false;
+        tick = 0;
+        recentlyCollidedCars.clear();
+        npcCars.clear();
+        position = 0.0;
+        speed = 0.3;
+        playerCar.setxCoord(PLAYER_START_X);
+        spawnInitialNPCCars();
+    }
+
+    private BufferedImage randomNPCImage() {
+        if (random.nextBoolean()) {
+            return npc1img;
+        } else {
+            return npc2img;
+        }
+    }
+
+    private void spawnInitialNPCCars() {
+        for (int i = 0; i < 2; i++) {
+            BufferedImage npcImage = randomNPCImage();
+
+            double roadPos = 20 + i * 8;
+            double lane = (random.nextDouble() - 0.6) * 1.2;
+            double npcSpeed = 0.7 + random.nextDouble() * 0.3;
+
+            Car npcCar = new Car(npcImage, 0, 0, roadPos, lane, npcSpeed);
+            npcCars.add(npcCar);
+        }
+    }
+
+    private boolean wouldCollide(double roadPos, double laneOffset) {
+        for (Car existingCar : npcCars) {
+            double roadDistance = Math.abs(existingCar.getRoadPosition() - roadPos);
+            if (roadDistance < MIN_CAR_DISTANCE) {
+                double laneDistance = Math.abs(existingCar.getLaneOffset() - laneOffset);
+                if (laneDistance < LANE_WIDTH) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Picks a lane at roadPos that keeps LANE_WIDTH from every car within MIN_CAR_DISTANCE.
+    // The lanes blocked by nearby cars are sorted and merged into free intervals and the lane
+    // is drawn uniformly from the free length, so the cost is bounded however full the road is.
+    // Returns NaN when there is no room.
+    private double findFreeLane(double roadPos) {
+        int blocked = 0;
+        for (int i = 0; i < npcCars.size(); i++) {
+            Car existingCar = npcCars.get(i);
+            if (Math.abs(existingCar.getRoadPosition() - roadPos) >= MIN_CAR_DISTANCE) continue;
+
+            if (blocked == blockedStart.length) {
+                growScratch();
+            }
+            double start = existingCar.getLaneOffset() - LANE_WIDTH;
+            double end = existingCar.getLaneOffset() + LANE_WIDTH;
+            int j = blocked++;
+            while (j > 0 && blockedStart[j - 1] > start) {
+                blockedStart[j] = blockedStart[j - 1];
+                blockedEnd[j] = blockedEnd[j - 1];
+                j--;
+            }
+            blockedStart[j] = start;
+            blockedEnd[j] = end;
+        }
+
+        int free = 0;
+        double totalFree = 0;
+        double cursor = SPAWN_MIN_LANE;
+        for (int i = 0; i < blocked && cursor < SPAWN_MAX_LANE; i++) {
+            if (blockedStart[i] > cursor) {
+                freeStart[free] = cursor;
+                freeEnd[free] = Math.min(blockedStart[i], SPAWN_MAX_LANE);
+                totalFree += freeEnd[free] - freeStart[free];
+                free++;
+            }
+            cursor = Math.max(cursor, blockedEnd[i]);
+        }
+        if (cursor < SPAWN_MAX_LANE) {
+            freeStart[free] = cursor;
+            freeEnd[free] = SPAWN_MAX_LANE;
+            totalFree += freeEnd[free] - freeStart[free];
+            free++;
+        }
+        if (totalFree <= 0) {
+            return Double.NaN;
+        }
+
+        double target = random.nextDouble() * totalFree;
+        for (int i = 0; i < free; i++) {
+            double width = freeEnd[i] - freeStart[i];
+            if (target < width) {
+                return freeStart[i] + target;
+            }
+            target -= width;
+        }
+        return freeEnd[free - 1];
+    }
+
+    private void growScratch() {
+        int size = blockedStart.length * 2;
+        blockedStart = Arrays.copyOf(blockedStart, size);
+        blockedEnd = Arrays.copyOf(blockedEnd, size);
+        freeStart = Arrays.copyOf(freeStart, size + 1);
+        freeEnd = Arrays.copyOf(freeEnd, size + 1);
+    }
+
+    private boolean hasCarsNear(double roadPos) {
+        for (int i = 0; i < npcCars.size(); i++) {
+            if (Math.abs(npcCars.get(i).getRoadPosition() - roadPos) < MIN_CAR_DISTANCE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public double getPlayerLaneOffset() {
+        return laneOffsetForX(playerCar.getxCoord());
+    }
+
+    // Lane offset the player car would have with its left edge at x
+    public double laneOffsetForX(double x) {
+        int roadWidth = (int)(ROAD_WIDTH);
+        return (x + playerWidth/2 - roadCenterX) / (roadWidth * 0.3);
+    }
+
+    // Returns true if the player hit an NPC car this tick.
+    private boolean checkPlayerCollisions() {
+        double playerLaneOffset = getPlayerLaneOffset();
+        double playerRoadPosition = 0;
+
+        List<Car> updatedList = new ArrayList<Car>();
+        for (int i = 0; i < recentlyCollidedCars.size(); i++) {
+            Car car = recentlyCollidedCars.get(i);
+            double pos = car.getRoadPosition();
+            if (pos >= -5 && pos <= 5) {
+                updatedList.add(car);
+            }
+        }
+        recentlyCollidedCars = updatedList;
+
+        for (int i = 0; i < npcCars.size(); i++) {
+            Car npc = npcCars.get(i);
+
+            boolean alreadyCollided = false;
+            for (int j = 0; j < recentlyCollidedCars.size(); j++) {
+                if (recentlyCollidedCars.get(j) == npc) {
+                    alreadyCollided = true;
+                }
+            }
+
+            if (!alreadyCollided) {
+                double roadDistance = Math.abs(npc.getRoadPosition() - playerRoadPosition);
+                double laneDistance = Math.abs(npc.getLaneOffset() - playerLaneOffset);
+
+                if (roadDistance < COLLISION_DISTANCE && laneDistance < COLLISION_LANE_WIDTH) {
+                    collisionCount++;
+                    lastCollisionCar = npc;
+                    recentlyCollidedCars.add(npc);
+
+                    if (collisionCount >= maxCollisions) {
+                        gameOver = true;
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void moveNPCCars() {
+        for (int i = npcCars.size() - 1; i >= 0; i--) {
+            Car npc = npcCars.get(i);
+
+            double currentRoadPos = npc.getRoadPosition();
+            npc.setRoadPosition(currentRoadPos - speed * npc.getSpeed());
+
+            if (npc.getRoadPosition() < -2) {
+                npcCars.remove(i);
+                recentlyCollidedCars.remove(npc);
+            }
+        }
+    }
+
+    private void updateNPCCars() {
+        moveNPCCars();
+
+        difficulty.update(tick * SECONDS_PER_TICK, speed / maxSpeed);
+        int room = difficulty.getMaxNpcCars() - npcCars.size();
+        if (room > 0 && random.nextDouble() * 100 < difficulty.getSpawnChance()) {
+            double roadPos = 25 + random.nextDouble() * 10;
+            int pattern = difficulty.nextPattern(random);
+
+            boolean spawned = false;
+            if (pattern == DifficultyScheduler.LANE_WALL) {
+                spawned = spawnLaneWall(roadPos, room);
+            } else if (pattern == DifficultyScheduler.CONVOY) {
+                spawned = spawnConvoy(roadPos, Math.min(CONVOY_LENGTH, room));
+            }
+            if (!spawned) {
+                spawnConvoy(roadPos, 1);
+            }
+        }
+    }
+
+    // Cars nose to tail in one free lane, all at the same speed. A convoy of 1 is a single car.
+    private boolean spawnConvoy(double roadPos, int length) {
+        double lane = findFreeLane(roadPos);
+        if (Double.isNaN(lane)) {
+            return false;
+        }
+
+        double npcSpeed = difficulty.nextNpcSpeed(random);
+        npcCars.add(new Car(randomNPCImage(), 0, 0, roadPos, lane, npcSpeed));
+        for (int i = 1; i < length; i++) {
+            double carPos = roadPos + i * CONVOY_SPACING;
+            if (!wouldCollide(carPos, lane)) {
+                npcCars.add(new Car(randomNPCImage(), 0, 0, carPos, lane, npcSpeed));
+            }
+        }
+        return true;
+    }
+
+    // A row of cars across every lane the player can reach, leaving one gap the player can fit through.
+    // The gap is placed where the player can steer to in time, even at full speed.
+    private boolean spawnLaneWall(double roadPos, int room) {
+        if (hasCarsNear(roadPos)) {
+            return false;
+        }
+
+        double npcSpeed = difficulty.nextNpcSpeed(random);
+        double ticksToArrival = (Math.min(roadPos, WALL_VISIBLE_DISTANCE) - COLLISION_DISTANCE)
+                / (maxSpeed * npcSpeed) - WALL_REACTION_TICKS;
+        double reach = Math.max(ticksToArrival, 0) * carMoveSpeed / (ROAD_WIDTH * 0.3)
+                + WALL_GAP_HALF_WIDTH - COLLISION_LANE_WIDTH;
+
+        double playerLane = getPlayerLaneOffset();
+        double playerMinLane = laneOffsetForX(CAR_MIN_X);
+        double playerMaxLane = laneOffsetForX(CAR_MAX_X);
+        double gapMin = Math.max(Math.max(playerMinLane, SPAWN_MIN_LANE), playerLane - reach);
+        double gapMax = Math.min(Math.min(playerMaxLane, SPAWN_MAX_LANE), playerLane + reach);
+        if (gapMin > gapMax) {
+            return false;
+        }
+        double gap = gapMin + random.nextDouble() * (gapMax - gapMin);
+
+        // Lane spacing below twice the collision width leaves no holes between neighbours
+        int carsAbove = 0;
+        for (double lane = gap + WALL_GAP_HALF_WIDTH; lane < playerMaxLane + COLLISION_LANE_WIDTH; lane += LANE_WIDTH) {
+            carsAbove++;
+        }
+        int carsBelow = 0;
+        for (double lane = gap - WALL_GAP_HALF_WIDTH; lane > playerMinLane - COLLISION_LANE_WIDTH; lane -= LANE_WIDTH) {
+            carsBelow++;
+        }
+        if (carsAbove + carsBelow > room || carsAbove + carsBelow == 0) {
+            return false;
+        }
+
+        for (int i = 0; i < carsAbove; i++) {
+            npcCars.add(new Car(randomNPCImage(), 0, 0, roadPos, gap + WALL_GAP_HALF_WIDTH + i * LANE_WIDTH, npcSpeed));
+        }
+        for (int i = 0; i < carsBelow; i++) {
+            npcCars.add(new Car(randomNPCImage(), 0, 0, roadPos, gap - WALL_GAP_HALF_WIDTH - i * LANE_WIDTH, npcSpeed));
+        }
+        return true;
+    }
+
+    private void updatePlayer() {
+        // Speed logic using the configurable maxSpeed
+        if (wPressed && sPressed) {
+            speed = Math.max(speed - NATURAL_DECELERATION, MIN_SPEED);
+        } else if (wPressed) {
+            speed = Math.min(speed + SPEED_INCREMENT, maxSpeed);
+        } else if (sPressed) {
+            speed = Math.max(speed - BRAKE_INCREMENT, MIN_SPEED);
+        } else {
+            speed = Math.max(speed - NATURAL_DECELERATION, MIN_SPEED);
+        }
+
+        // Horizontal movement using configurable carMoveSpeed
+        int currentX = playerCar.getxCoord();
+        if (aPressed && !dPressed) {
+            playerCar.setxCoord((int) Math.max(currentX - carMoveSpeed, CAR_MIN_X));
+        } else if (dPressed && !aPressed) {
+            playerCar.setxCoord((int) Math.min(currentX + carMoveSpeed, CAR_MAX_X));
+        }
+    }
+
+    // Advances the run by one frame. Returns true if the player hit an NPC car.
+    public boolean tick() {
+        if (gameOver) return false;
+
+        updatePlayer();
+        updateNPCCars();
+        boolean collided = checkPlayerCollisions();
+        position += speed;
+        tick++;
+        return collided;
+    }
+
+    // Client-side prediction: moves the player and the known NPC cars without
+    // spawning or collision checks, which are left to the authoritative host.
+    public void predictTick() {
+        if (gameOver) return;
+
+        replayTick();
+        tick++;
+    }
+
+    // Re-runs a tick that was already predicted, after a snapshot rewound the state; the tick
+    // counter has already counted it and stays in step with real time.
+    public void replayTick() {
+        if (gameOver) return;
+
+        updatePlayer();
+        moveNPCCars();
+        position += speed;
+    }
+
+    public void setInputs(boolean w, boolean s, boolean a, boolean d) {
+        wPressed = w;
+        sPressed = s;
+        aPressed = a;
+        dPressed = d;
+    }
+
+    public void setInputBits(int input) {
+        setInputs((input & INPUT_THROTTLE) != 0, (input & INPUT_BRAKE) != 0,
+                (input & INPUT_LEFT) != 0, (input & INPUT_RIGHT) != 0);
+    }
+
+    public void setPlayerState(int xCoord, double speed, double position) {
+        playerCar.setxCoord(xCoord);
+        this.speed = speed;
+        this.position = position;
+    }
+
+    public void setCollisionState(int collisionCount, boolean gameOver) {
+        this.collisionCount = collisionCount;
+        this.gameOver = gameOver;
+    }
+
+    public void setRoadCenterX(int roadCenterX) {
+        this.roadCenterX = roadCenterX;
+    }
+
+    public List<Car> getNpcCars() {
+        return npcCars;
+    }
+
+    public Car getPlayerCar() {
+        return playerCar;
+    }
+
+    public double getPosition() {
+        return position;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public void setMaxSpeed(double maxSpeed) {
+        this.maxSpeed = maxSpeed;
+    }
+
+    public double getCarMoveSpeed() {
+        return carMoveSpeed;
+    }
+
+    public void setCarMoveSpeed(double carMoveSpeed) {
+        this.carMoveSpeed = carMoveSpeed;
+    }
+
+    public void setMaxCollisions(int maxCollisions) {
+        this.maxCollisions = maxCollisions;
+    }
+
+    // Starting traffic limits; the difficulty scheduler adds to them as the run goes on
+    public void setMaxNpcCars(int maxNpcCars) {
+        difficulty.setBaseMaxNpcCars(maxNpcCars);
+    }
+
+    public void setSpawnChancePercent(int spawnChancePercent) {
+        difficulty.setBaseSpawnChancePercent(spawnChancePercent);
+    }
+
+    public int getCollisionCount() {
+        return collisionCount;
+    }
+
+    // The NPC car from the most recent collision, or null if there hasn't been one this run
+    public Car getLastCollisionCar() {
+        return lastCollisionCar;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+}
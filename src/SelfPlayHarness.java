@@ -0,0 +1,71 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Runs many headless autopilot games in parallel on every core and reports simulation
+// throughput and survival-time percentiles. Used for tuning and as a load test.
+// Usage: java SelfPlayHarness [games] [maxSpeed] [spawnChancePercent] [maxCollisions] [maxNpcCars]
+public class SelfPlayHarness {
+    private static final int MAX_TICKS = 60 * 60 * 10; // stop a game after about ten minutes of play
+    private static final double SECONDS_PER_TICK = RoadSimulation.SECONDS_PER_TICK;
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        double maxSpeed = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+        int spawnChance = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int maxCollisions = args.length > 3 ? Integer.parseInt(args[3]) : RoadSimulation.MAX_COLLISIONS;
+        int maxNpcCars = args.length > 4 ? Integer.parseInt(args[4]) : 2;
+
+        System.out.println("Games: " + games + ", cores: " + Runtime.getRuntime().availableProcessors()
+                + ", maxSpeed: " + maxSpeed + ", spawn: " + spawnChance + "%, maxCollisions: " + maxCollisions
+                + ", maxNpcCars: " + maxNpcCars);
+
+        long start = System.nanoTime();
+        int[] survivalTicks = IntStream.range(0, games)
+                .parallel()
+                .map(game -> playGame(game, maxSpeed, spawnChance, maxCollisions, maxNpcCars))
+                .toArray();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long totalTicks = 0;
+        int unfinished = 0;
+        for (int ticks : survivalTicks) {
+            totalTicks += ticks;
+            if (ticks >= MAX_TICKS) {
+                unfinished++;
+            }
+        }
+        Arrays.sort(survivalTicks);
+
+        System.out.println(String.format("Simulated %d ticks in %.2f s: %.0f ticks/s",
+                totalTicks, elapsedSeconds, totalTicks / elapsedSeconds));
+        System.out.println(String.format("Survival time p10 %.1f s, p50 %.1f s, p90 %.1f s, p99 %.1f s, max %.1f s",
+                percentile(survivalTicks, 10), percentile(survivalTicks, 50), percentile(survivalTicks, 90),
+                percentile(survivalTicks, 99), survivalTicks[survivalTicks.length - 1] * SECONDS_PER_TICK));
+        if (unfinished > 0) {
+            System.out.println(unfinished + " games hit the " + (int) (MAX_TICKS * SECONDS_PER_TICK) + " s limit");
+        }
+    }
+
+    // Plays one seeded game to game over and returns how many ticks it lasted
+    private static int playGame(int seed, double maxSpeed, int spawnChance, int maxCollisions, int maxNpcCars) {
+        RoadSimulation sim = new RoadSimulation(GameAssets.car(), null, null, new Random(seed));
+        sim.setMaxSpeed(maxSpeed);
+        sim.setSpawnChancePercent(spawnChance);
+        sim.setMaxCollisions(maxCollisions);
+        sim.setMaxNpcCars(maxNpcCars);
+        sim.reset();
+
+        CarController autopilot = new AutopilotController();
+        while (!sim.isGameOver() && sim.getTick() < MAX_TICKS) {
+            sim.setInputBits(autopilot.nextInput(sim));
+            sim.tick();
+        }
+        return sim.getTick();
+    }
+
+    private static double percentile(int[] sortedTicks, int percent) {
+        int index = Math.min(sortedTicks.length - 1, (int) Math.ceil(percent / 100.0 * sortedTicks.length) - 1);
+        return sortedTicks[Math.max(index, 0)] * SECONDS_PER_TICK;
+    }
+}
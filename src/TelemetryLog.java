@@ -0,0 +1,156 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+// Gameplay telemetry shared by every panel in the process. Each panel writes events into its own
+// TelemetryRing; one background thread drains the rings in batches into GZIP files under
+// telemetry/, starting a new file once the current one passes MAX_FILE_BYTES and at the start of each
+// local day. Records drained just after midnight can still carry the previous day's timestamps, so
+// readers go by each record's timestamp rather than the file name alone.
+// Record layout (32 bytes, big endian): long time millis, int cabinet, int run, int tick,
+// short type, short value, float a, float b. What value, a and b hold depends on the type.
+public class TelemetryLog {
+    public static final int RECORD_BYTES = 32;
+
+    public static final int SESSION_START = 1; // a: max speed, b: turn speed
+    public static final int SESSION_END = 2;   // value: collisions, a: survival seconds, b: road position
+    public static final int SESSION_QUIT = 3;  // same as SESSION_END, for runs left with ESC
+    public static final int COLLISION = 4;     // value: collision count, a: NPC speed, b: NPC lane offset
+    public static final int SPEED = 5;         // value: NPC cars on the road, a: speed, b: player lane offset
+    public static final int INPUT = 6;         // value: input bits, see RoadSimulation.INPUT_*
+
+    public static final String FILE_PREFIX = "telemetry-";
+    public static final String FILE_SUFFIX = ".bin.gz";
+    public static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final Path DIRECTORY = Paths.get("telemetry");
+    private static final long MAX_FILE_BYTES = 1 << 20;
+    private static final long DRAIN_INTERVAL_NANOS = 250_000_000L;
+    private static final int BATCH_RECORDS = 1024;
+
+    private static TelemetryLog shared;
+
+    private final Path directory;
+    private final CopyOnWriteArrayList<TelemetryRing> rings = new CopyOnWriteArrayList<>();
+    private final ByteBuffer batch = ByteBuffer.allocate(BATCH_RECORDS * RECORD_BYTES);
+    private final Thread writer;
+    private volatile boolean running = true;
+    private FileOutputStream file;
+    private GZIPOutputStream out;
+    private LocalDate fileDay;
+    private int fileNumber = 0;
+
+    // The process-wide log, started on first use and flushed when the JVM exits
+    public static synchronized TelemetryLog shared() {
+        if (shared == null) {
+            shared = new TelemetryLog(DIRECTORY);
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::stop, "telemetry-shutdown"));
+        }
+        return shared;
+    }
+
+    public TelemetryLog(Path directory) {
+        this.directory = directory;
+        writer = new Thread(this::writeBatches, "telemetry-writer");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+
+    public TelemetryRing openRing(int cabinet) {
+        TelemetryRing ring = new TelemetryRing(cabinet);
+        rings.add(ring);
+        return ring;
+    }
+
+    // Stops logging for a panel that is going away, once its last records are written
+    public void closeRing(TelemetryRing ring) {
+        ring.close();
+    }
+
+    // Writes out whatever is still buffered and closes the current file
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeBatches() {
+        while (running) {
+            drainRings();
+            LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+        }
+        drainRings();
+        closeFile();
+    }
+
+    private void drainRings() {
+        for (TelemetryRing ring : rings) {
+            boolean closed = ring.isClosed(); // read first, so every record written before close() is seen
+            while (true) {
+                batch.clear();
+                int count = ring.drainTo(batch);
+                if (count == 0) break;
+                writeBatch();
+                if (count < BATCH_RECORDS) break;
+            }
+            if (closed) {
+                rings.remove(ring);
+            }
+        }
+    }
+
+    private void writeBatch() {
+        try {
+            if (out != null && !LocalDate.now().equals(fileDay)) {
+                closeFile();
+            }
+            if (out == null) {
+                openFile();
+            }
+            out.write(batch.array(), 0, batch.position());
+            out.flush(); // sync flush, so a crash loses at most the last batch
+
+            if (file.getChannel().position() >= MAX_FILE_BYTES) {
+                closeFile();
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            closeFile();
+        }
+    }
+
+    private void openFile() throws IOException {
+        Files.createDirectories(directory);
+        LocalDateTime now = LocalDateTime.now();
+        fileDay = now.toLocalDate();
+        String name = FILE_PREFIX + now.format(FILE_TIME_FORMAT) + "-" + fileNumber++ + FILE_SUFFIX;
+        file = new FileOutputStream(directory.resolve(name).toFile());
+        out = new GZIPOutputStream(file, 64 * 1024, true);
+    }
+
+    private void closeFile() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        out = null;
+        file = null;
+    }
+}
@@ -0,0 +1,190 @@
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+// Summarises a day of telemetry. Each file is decoded on its own in a parallel stream and the per-file
+// summaries are merged at the end. Records are picked by their own timestamp, reading the files named
+// for the day before and after as well: the writer starts a new file each day, but records drained
+// around midnight land on the other side of it.
+// Usage: java TelemetryReader [yyyyMMdd] [directory]
+public class TelemetryReader {
+    private static final double LANE_MIN = -1.5;
+    private static final double LANE_BUCKET_WIDTH = 0.25;
+    private static final int LANE_BUCKETS = 12;
+    private static final double SPEED_BUCKET_WIDTH = 0.1;
+    private static final int SPEED_BUCKETS = 20;
+
+    static class Summary {
+        final long dayStart; // epoch millis, inclusive
+        final long dayEnd;   // exclusive
+        long files;
+        long records;
+        long runs;
+        long finishedRuns;
+        long quitRuns;
+        long survivalSeconds;
+        long bestSurvivalSeconds;
+        long collisions;
+        double npcSpeedTotal;
+        long npcSpeedSamples;
+        long speedSamples;
+        double speedTotal;
+        long inputChanges;
+        final long[] collisionsByLane = new long[LANE_BUCKETS];
+        final long[] speedHistogram = new long[SPEED_BUCKETS];
+
+        Summary(long dayStart, long dayEnd) {
+            this.dayStart = dayStart;
+            this.dayEnd = dayEnd;
+        }
+
+        void add(ByteBuffer record) {
+            long time = record.getLong(0);
+            if (time < dayStart || time >= dayEnd) return;
+
+            records++;
+            int type = record.getShort(20);
+            int value = record.getShort(22);
+            float a = record.getFloat(24);
+            float b = record.getFloat(28);
+
+            if (type == TelemetryLog.SESSION_START) {
+                runs++;
+            } else if (type == TelemetryLog.SESSION_END || type == TelemetryLog.SESSION_QUIT) {
+                if (type == TelemetryLog.SESSION_END) {
+                    finishedRuns++;
+                } else {
+                    quitRuns++;
+                }
+                survivalSeconds += (long) a;
+                bestSurvivalSeconds = Math.max(bestSurvivalSeconds, (long) a);
+            } else if (type == TelemetryLog.COLLISION) {
+                collisions++;
+                if (!Float.isNaN(a)) {
+                    npcSpeedTotal += a;
+                    npcSpeedSamples++;
+                    collisionsByLane[bucket(b, LANE_MIN, LANE_BUCKET_WIDTH, LANE_BUCKETS)]++;
+                }
+            } else if (type == TelemetryLog.SPEED) {
+                speedSamples++;
+                speedTotal += a;
+                speedHistogram[bucket(a, 0, SPEED_BUCKET_WIDTH, SPEED_BUCKETS)]++;
+            } else if (type == TelemetryLog.INPUT) {
+                inputChanges++;
+            }
+        }
+
+        Summary merge(Summary other) {
+            files += other.files;
+            records += other.records;
+            runs += other.runs;
+            finishedRuns += other.finishedRuns;
+            quitRuns += other.quitRuns;
+            survivalSeconds += other.survivalSeconds;
+            bestSurvivalSeconds = Math.max(bestSurvivalSeconds, other.bestSurvivalSeconds);
+            collisions += other.collisions;
+            npcSpeedTotal += other.npcSpeedTotal;
+            npcSpeedSamples += other.npcSpeedSamples;
+            speedSamples += other.speedSamples;
+            speedTotal += other.speedTotal;
+            inputChanges += other.inputChanges;
+            for (int i = 0; i < LANE_BUCKETS; i++) {
+                collisionsByLane[i] += other.collisionsByLane[i];
+            }
+            for (int i = 0; i < SPEED_BUCKETS; i++) {
+                speedHistogram[i] += other.speedHistogram[i];
+            }
+            return this;
+        }
+    }
+
+    private static int bucket(double value, double min, double width, int buckets) {
+        int bucket = (int) Math.floor((value - min) / width);
+        return Math.max(0, Math.min(bucket, buckets - 1));
+    }
+
+    // A file cut short by a crash still yields every record before the break
+    static Summary readFile(Path file, long dayStart, long dayEnd) {
+        Summary summary = new Summary(dayStart, dayEnd);
+        byte[] bytes = new byte[TelemetryLog.RECORD_BYTES];
+        ByteBuffer record = ByteBuffer.wrap(bytes);
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (in.readNBytes(bytes, 0, bytes.length) == bytes.length) {
+                summary.add(record);
+            }
+        } catch (EOFException e) {
+            // truncated; keep what was read
+        } catch (IOException e) {
+            System.out.println(file + ": " + e.getMessage());
+        }
+        // Files from the neighbouring days are only counted if they held records for this one
+        summary.files = summary.records > 0 ? 1 : 0;
+        return summary;
+    }
+
+    public static void main(String[] args) throws IOException {
+        LocalDate date = args.length > 0 ? LocalDate.parse(args[0], TelemetryLog.DAY_FORMAT) : LocalDate.now();
+        String day = date.format(TelemetryLog.DAY_FORMAT);
+        Path directory = Paths.get(args.length > 1 ? args[1] : "telemetry");
+        String prefix = TelemetryLog.FILE_PREFIX + day + "-";
+        String previousPrefix = TelemetryLog.FILE_PREFIX + date.minusDays(1).format(TelemetryLog.DAY_FORMAT) + "-";
+        String nextPrefix = TelemetryLog.FILE_PREFIX + date.plusDays(1).format(TelemetryLog.DAY_FORMAT) + "-";
+        long dayStart = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long dayEnd = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(p -> {
+                String name = p.getFileName().toString();
+                boolean nearDay = name.startsWith(previousPrefix) || name.startsWith(prefix) || name.startsWith(nextPrefix);
+                return nearDay && name.endsWith(TelemetryLog.FILE_SUFFIX);
+            }).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Summary total = files.parallelStream()
+                .map(file -> readFile(file, dayStart, dayEnd))
+                .reduce(Summary::merge)
+                .orElseGet(() -> new Summary(dayStart, dayEnd));
+        print(day, total);
+    }
+
+    private static void print(String day, Summary s) {
+        long endedRuns = s.finishedRuns + s.quitRuns;
+        System.out.println("Telemetry for " + day + ": " + s.files + " files, " + s.records + " records");
+        System.out.println("Runs: " + s.runs + " started, " + s.finishedRuns + " finished, " + s.quitRuns + " quit");
+        System.out.printf("Survival: %.1f s average, %d s best%n",
+                endedRuns > 0 ? (double) s.survivalSeconds / endedRuns : 0.0, s.bestSurvivalSeconds);
+        System.out.printf("Collisions: %d (%.2f per run), average NPC speed %.2f%n", s.collisions,
+                endedRuns > 0 ? (double) s.collisions / endedRuns : 0.0,
+                s.npcSpeedSamples > 0 ? s.npcSpeedTotal / s.npcSpeedSamples : 0.0);
+        System.out.printf("Average speed: %.2f over %d samples, %d input changes%n",
+                s.speedSamples > 0 ? s.speedTotal / s.speedSamples : 0.0, s.speedSamples, s.inputChanges);
+
+        System.out.println("Collisions by NPC lane:");
+        for (int i = 0; i < LANE_BUCKETS; i++) {
+            if (s.collisionsByLane[i] == 0) continue;
+            double from = LANE_MIN + i * LANE_BUCKET_WIDTH;
+            System.out.printf("  %+.2f .. %+.2f  %d%n", from, from + LANE_BUCKET_WIDTH, s.collisionsByLane[i]);
+        }
+        System.out.println("Speed samples:");
+        for (int i = 0; i < SPEED_BUCKETS; i++) {
+            if (s.speedHistogram[i] == 0) continue;
+            double from = i * SPEED_BUCKET_WIDTH;
+            System.out.printf("  %.1f .. %.1f  %d%n", from, from + SPEED_BUCKET_WIDTH, s.speedHistogram[i]);
+        }
+    }
+}
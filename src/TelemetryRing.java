@@ -0,0 +1,75 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Single-producer ring of fixed-size telemetry records for one game panel. The game thread writes
+// a record's fields straight into a preallocated buffer and publishes it by advancing head; the
+// log writer thread copies published records out and advances tail. Nothing here locks or
+// allocates, and if the writer falls behind new records are dropped rather than stalling the game.
+public class TelemetryRing {
+    private static final int CAPACITY = 1 << 13; // records; the writer drains every 250 ms
+
+    private final ByteBuffer records = ByteBuffer.allocateDirect(CAPACITY * TelemetryLog.RECORD_BYTES);
+    private final AtomicLong head = new AtomicLong(); // next slot to write, advanced by the producer
+    private final AtomicLong tail = new AtomicLong(); // next slot to read, advanced by the writer
+    private final int cabinet;
+    private volatile long dropped = 0;
+    private volatile boolean closed = false;
+
+    TelemetryRing(int cabinet) {
+        this.cabinet = cabinet;
+    }
+
+    // Producer side. Callers must not write from two threads at once (RoadPanel writes under simLock).
+    public void write(int run, int tick, int type, int value, float a, float b) {
+        long slot = head.get();
+        if (slot - tail.get() == CAPACITY) {
+            dropped++;
+            return;
+        }
+
+        int offset = (int) (slot & (CAPACITY - 1)) * TelemetryLog.RECORD_BYTES;
+        records.putLong(offset, System.currentTimeMillis());
+        records.putInt(offset + 8, cabinet);
+        records.putInt(offset + 12, run);
+        records.putInt(offset + 16, tick);
+        records.putShort(offset + 20, (short) type);
+        records.putShort(offset + 22, (short) value);
+        records.putFloat(offset + 24, a);
+        records.putFloat(offset + 28, b);
+        head.lazySet(slot + 1);
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    // Records written before close() are still drained; the writer then forgets the ring
+    void close() {
+        closed = true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    // Writer side: copies as many published records as fit into batch and frees their slots
+    int drainTo(ByteBuffer batch) {
+        long first = tail.get();
+        int count = (int) Math.min(head.get() - first, batch.remaining() / TelemetryLog.RECORD_BYTES);
+
+        // At most two copies: up to the end of the buffer, then from its start
+        int startSlot = (int) (first & (CAPACITY - 1));
+        int beforeWrap = Math.min(count, CAPACITY - startSlot);
+        copy(batch, startSlot, beforeWrap);
+        copy(batch, 0, count - beforeWrap);
+
+        tail.lazySet(first + count);
+        return count;
+    }
+
+    private void copy(ByteBuffer batch, int startSlot, int count) {
+        int length = count * TelemetryLog.RECORD_BYTES;
+        batch.put(batch.position(), records, startSlot * TelemetryLog.RECORD_BYTES, length);
+        batch.position(batch.position() + length);
+    }
+}